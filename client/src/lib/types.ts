@@ -3,6 +3,7 @@ export interface Product {
   title: string;
   description: string;
   imageUrl: string;
+  thumbnailUrl?: string;
   startingPrice: number;
   biddingEndTime?: string; // ISO date string, optional
   endTime?: string; // ISO date string, optional
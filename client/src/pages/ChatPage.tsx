@@ -9,6 +9,19 @@ import { ArrowLeft } from 'lucide-react';
 import { Client } from '@stomp/stompjs';
 import type { Message } from '../lib/types';
 
+// Matches the server's default page size for /products/{id}/messages
+const PAGE_SIZE = 50;
+
+// Adds messages that are not already shown, in the server's order (time sent, then id)
+function mergeMessages(current: Message[], incoming: Message[]): Message[] {
+  const known = new Set(current.map((m) => m.id));
+  const added = incoming.filter((m) => !known.has(m.id));
+  if (added.length === 0) return current;
+  return [...current, ...added].sort(
+    (a, b) => new Date(a.createdAt).getTime() - new Date(b.createdAt).getTime() || a.id - b.id
+  );
+}
+
 export default function ChatPage() {
   const { id: productId } = useParams<{ id: string }>();
   const { user } = useAuth();
@@ -17,16 +30,58 @@ export default function ChatPage() {
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const stompClientRef = useRef<Client | null>(null);
   const [connected, setConnected] = useState(false);
+  const [hasOlder, setHasOlder] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  // Read from the socket callbacks, which outlive the render they were created in
+  const messagesRef = useRef<Message[]>([]);
+  const lastShownIdRef = useRef<number | undefined>(undefined);
+
+  useEffect(() => {
+    messagesRef.current = messages;
+  }, [messages]);
 
-  // Fetch chat history
+  // Fetch the latest page of chat history; older pages load on demand
   useEffect(() => {
     if (!productId) return;
-    apiGet<Message[]>(`/products/${productId}/messages`).then(setMessages);
+    apiGet<Message[]>(`/products/${productId}/messages`, { params: { limit: PAGE_SIZE } }).then((page) => {
+      setMessages((prev) => mergeMessages(prev, page));
+      setHasOlder(page.length === PAGE_SIZE);
+    });
   }, [productId]);
 
+  const loadOlder = async () => {
+    const oldest = messagesRef.current[0];
+    if (!productId || !oldest) return;
+    setLoadingOlder(true);
+    try {
+      const page = await apiGet<Message[]>(`/products/${productId}/messages`, {
+        params: { before: oldest.id, beforeCreatedAt: oldest.createdAt, limit: PAGE_SIZE },
+      });
+      setMessages((prev) => mergeMessages(prev, page));
+      setHasOlder(page.length === PAGE_SIZE);
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
   // WebSocket setup
   useEffect(() => {
     if (!productId || !user) return;
+    // After a (re)connect, fetch whatever was sent while the socket was down. The cursor is the last message's
+    // (createdAt, id) as sent by the server, which works even if that message was never stored.
+    const syncSinceLast = async () => {
+      let last = messagesRef.current[messagesRef.current.length - 1];
+      if (last === undefined) return;
+      for (;;) {
+        const page = await apiGet<Message[]>(`/products/${productId}/messages`, {
+          params: { sinceId: last.id, sinceCreatedAt: last.createdAt, limit: PAGE_SIZE },
+        });
+        setMessages((prev) => mergeMessages(prev, page));
+        if (page.length < PAGE_SIZE) break;
+        last = page[page.length - 1];
+      }
+    };
+
     const token = localStorage.getItem('token');
     const wsBaseUrl = import.meta.env.VITE_WS_URL || 'ws://localhost:8080';
     const client = new Client({
@@ -36,8 +91,9 @@ export default function ChatPage() {
         setConnected(true);
         client.subscribe(`/topic/chat/${productId}`, (msg: import('@stomp/stompjs').IMessage) => {
           const message: Message = JSON.parse(msg.body);
-          setMessages((prev) => [...prev, message]);
+          setMessages((prev) => mergeMessages(prev, [message]));
         });
+        syncSinceLast();
       },
       onDisconnect: () => setConnected(false),
       onStompError: () => setConnected(false),
@@ -47,9 +103,13 @@ export default function ChatPage() {
     return () => { setConnected(false); client.deactivate(); };
   }, [productId, user]);
 
-  // Auto-scroll
+  // Auto-scroll when a newer message arrives, not when older ones are prepended
   useEffect(() => {
-    messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
+    const lastId = messages[messages.length - 1]?.id;
+    if (lastId !== lastShownIdRef.current) {
+      lastShownIdRef.current = lastId;
+      messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
+    }
   }, [messages]);
 
   const sendMessage = () => {
@@ -81,6 +141,13 @@ export default function ChatPage() {
             <CardTitle>Chat</CardTitle>
           </CardHeader>
           <CardContent className="flex-1 overflow-y-auto p-4 space-y-4">
+            {hasOlder && (
+              <div className="flex justify-center">
+                <Button variant="ghost" size="sm" onClick={loadOlder} disabled={loadingOlder}>
+                  {loadingOlder ? 'Loading...' : 'Load earlier messages'}
+                </Button>
+              </div>
+            )}
             {messages.map((msg) => (
               <div
                 key={msg.id}
@@ -32,7 +32,7 @@ function ProductCard({ product }: { product: Product }) {
       <div className="flex flex-col h-full">
         <div className="aspect-square bg-gray-50 flex items-center justify-center overflow-hidden">
           <img 
-            src={`${apiBaseUrl}${product.imageUrl}`} 
+            src={`${apiBaseUrl}${product.thumbnailUrl ?? product.imageUrl}`} 
             alt={product.title}
             className="w-full h-full object-contain rounded-t-xl"
           />
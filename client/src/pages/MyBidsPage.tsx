@@ -64,7 +64,7 @@ export default function MyBidsPage() {
                 <CardHeader className="pb-3">
                   <div className="aspect-square rounded-lg bg-gray-100 mb-3 overflow-hidden">
                     <img
-                      src={`${apiBaseUrl}${bid.product?.imageUrl ?? ''}`}
+                      src={`${apiBaseUrl}${bid.product?.thumbnailUrl ?? bid.product?.imageUrl ?? ''}`}
                       alt={bid.product?.title ?? 'Product'}
                       className="w-full h-full object-cover"
                     />
@@ -106,7 +106,7 @@ export default function SoldItemsPage() {
                     <div className="flex-1">
                       <div className="aspect-square rounded-lg bg-gray-100 mb-3 overflow-hidden">
                         <img
-                          src={`${apiBaseUrl}${product.imageUrl}`}
+                          src={`${apiBaseUrl}${product.thumbnailUrl ?? product.imageUrl}`}
                           alt={product.title}
                           className="w-full h-full object-cover"
                         />
@@ -0,0 +1,255 @@
+package com.studentbidz.site.config;
+
+import com.studentbidz.site.dto.AuctionSnapshotMessage;
+import com.studentbidz.site.service.AuctionSnapshotService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Admission control in front of the controllers. Every request takes one of app.admission.max-concurrent
+// slots while it runs, and each priority may only fill the slots up to its own limit:
+//  - CRITICAL: bids on auctions whose cached snapshot puts them within app.admission.final-window of their
+//    end. They may use every slot, including the ones reserved for them, and wait up to critical-max-wait
+//    for one to free up.
+//  - NORMAL: everything else. They leave the reserved slots free and wait up to normal-max-wait.
+//  - LOW: polling and dashboard reads. They are capped lower still and never wait. They are also shed
+//    while requests queue for a primary database connection.
+// Refused requests get 503 with Retry-After. Live streams, WebSocket and images are long-lived or cheap and
+// are not counted. Runs just after the security chain, so refusals carry CORS headers.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private enum Priority { CRITICAL, NORMAL, LOW }
+
+    private static final Pattern BID_PATH = Pattern.compile("^/products/(\\d+)/(bids|proxy-bid)$");
+
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+
+    // One pool, or "primary" and "replica" when DataSourceRoutingConfig is active
+    @Autowired
+    private List<HikariDataSource> pools;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+    @Value("${app.admission.max-concurrent:100}")
+    private int maxConcurrent;
+    @Value("${app.admission.reserved-for-final-window:20}")
+    private int reservedForFinalWindow;
+    @Value("${app.admission.low-priority-max-concurrent:40}")
+    private int lowPriorityMaxConcurrent;
+    @Value("${app.admission.final-window:PT2M}")
+    private Duration finalWindow;
+    @Value("${app.admission.critical-max-wait:PT2S}")
+    private Duration criticalMaxWait;
+    @Value("${app.admission.normal-max-wait:PT0.5S}")
+    private Duration normalMaxWait;
+    @Value("${app.admission.db-wait-threshold:5}")
+    private int dbWaitThreshold;
+    @Value("${app.admission.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Object released = new Object();
+
+    private final Map<Priority, Counter> admitted = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> delayed = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+    private final Timer waitTimer;
+
+    public AdmissionControlFilter(MeterRegistry meterRegistry) {
+        for (Priority priority : Priority.values()) {
+            admitted.put(priority, decisions(meterRegistry, priority, "admitted"));
+            delayed.put(priority, decisions(meterRegistry, priority, "delayed"));
+            shed.put(priority, decisions(meterRegistry, priority, "shed"));
+        }
+        Gauge.builder("admission.in-flight", inFlight, AtomicInteger::get)
+            .description("Requests currently holding an admission slot")
+            .register(meterRegistry);
+        Gauge.builder("admission.waiting", waiting, AtomicInteger::get)
+            .description("Requests waiting for an admission slot")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("admission.wait")
+            .description("Time delayed requests waited for a slot")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !enabled
+            || "OPTIONS".equals(request.getMethod())
+            || path.endsWith("/stream")
+            || path.startsWith("/ws")
+            || path.startsWith("/images/")
+            || path.startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        Priority priority = classify(request);
+        if (!admit(priority)) {
+            shed.get(priority).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"The server is busy. Please try again in a moment.\"}");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            release();
+        }
+    }
+
+    private Priority classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getServletPath();
+        if ("GET".equals(method)) {
+            boolean low = path.startsWith("/notifications")
+                || path.startsWith("/dashboard")
+                || path.equals("/products/seller")
+                || path.equals("/users/me/bids");
+            return low ? Priority.LOW : Priority.NORMAL;
+        }
+        Matcher bid = BID_PATH.matcher(path);
+        if (bid.matches() && ("POST".equals(method) || "PUT".equals(method)) && inFinalWindow(Long.valueOf(bid.group(1)))) {
+            return Priority.CRITICAL;
+        }
+        return Priority.NORMAL;
+    }
+
+    // Only the in-memory snapshot is consulted, so classifying never waits on the database. Any auction
+    // being bid on in its final minutes has one; a miss is treated as NORMAL.
+    private boolean inFinalWindow(Long productId) {
+        AuctionSnapshotMessage snapshot = snapshotService.peek(productId).orElse(null);
+        return snapshot != null && snapshot.getEndTime() != null && "ACTIVE".equals(snapshot.getStatus())
+            && snapshot.getEndTime().isBefore(OffsetDateTime.now().plus(finalWindow));
+    }
+
+    private boolean admit(Priority priority) {
+        int limit;
+        Duration maxWait;
+        switch (priority) {
+            case CRITICAL:
+                limit = maxConcurrent;
+                maxWait = criticalMaxWait;
+                break;
+            case LOW:
+                if (dbQueueTooLong()) {
+                    return false;
+                }
+                limit = Math.min(lowPriorityMaxConcurrent, maxConcurrent - reservedForFinalWindow);
+                maxWait = Duration.ZERO;
+                break;
+            default:
+                limit = maxConcurrent - reservedForFinalWindow;
+                maxWait = normalMaxWait;
+        }
+        if (tryAcquire(limit)) {
+            admitted.get(priority).increment();
+            return true;
+        }
+        if (maxWait.isZero()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean acquired = awaitSlot(limit, start + maxWait.toNanos());
+        if (acquired) {
+            delayed.get(priority).increment();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return acquired;
+    }
+
+    private boolean tryAcquire(int limit) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean awaitSlot(int limit, long deadline) {
+        waiting.incrementAndGet();
+        try {
+            synchronized (released) {
+                while (!tryAcquire(limit)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(released, remaining);
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        // Waiters count themselves before they check for a slot, so none can miss this
+        if (waiting.get() > 0) {
+            synchronized (released) {
+                released.notifyAll();
+            }
+        }
+    }
+
+    private boolean dbQueueTooLong() {
+        for (HikariDataSource dataSource : pools) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (!"replica".equals(dataSource.getPoolName()) && pool != null && pool.getThreadsAwaitingConnection() >= dbWaitThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, Priority priority, String outcome) {
+        return Counter.builder("admission.requests")
+            .description("Admission decisions by request priority")
+            .tag("priority", priority.name().toLowerCase())
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
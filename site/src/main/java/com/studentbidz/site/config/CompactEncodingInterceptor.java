@@ -0,0 +1,119 @@
+package com.studentbidz.site.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Negotiates CBOR instead of JSON for STOMP payloads.
+// A client opts in by sending "accept-content-type: application/cbor" on CONNECT; from then on every
+// JSON MESSAGE frame to that session is re-encoded as CBOR. Clients may also SEND with
+// "content-type: application/cbor", which the converter from cborMessageConverter() decodes; frames
+// without a content-type are still JSON.
+// CBOR is not valid UTF-8, so it must travel in binary WebSocket frames: Spring only uses those for
+// application/octet-stream, so the frame is labelled octet-stream with "payload-format: application/cbor".
+// Only raw /ws clients should opt in; SockJS cannot carry binary frames.
+// Broadcasts are serialised once as JSON by the broker; the CBOR form is cached per payload so a
+// topic with many CBOR subscribers is transcoded once, not once per session. The cache holds payloads
+// weakly and by identity, and is bounded, so it lives no longer than the broadcasts it serves.
+public class CompactEncodingInterceptor implements ChannelInterceptor {
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+    public static final String ACCEPT_HEADER = "accept-content-type";
+    public static final String FORMAT_HEADER = "payload-format";
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    private final Cache<byte[], byte[]> transcoded = Caffeine.newBuilder().weakKeys().maximumSize(10_000).build();
+
+    public CompactEncodingInterceptor(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+    }
+
+    public MappingJackson2MessageConverter cborMessageConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(CBOR);
+        converter.setObjectMapper(cborMapper);
+        // Only frames labelled application/cbor; the default JSON converter handles the rest
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    // Registered on clientInboundChannel: records which sessions asked for CBOR
+    public ChannelInterceptor sessionTracker() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+                SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+                if (sessionId == null) {
+                    return message;
+                }
+                if (type == SimpMessageType.CONNECT) {
+                    String accept = StompHeaderAccessor.wrap(message).getFirstNativeHeader(ACCEPT_HEADER);
+                    if (accept != null && accept.contains(CBOR.toString())) {
+                        cborSessions.add(sessionId);
+                    }
+                } else if (type == SimpMessageType.DISCONNECT) {
+                    cborSessions.remove(sessionId);
+                }
+                return message;
+            }
+        };
+    }
+
+    // Registered on clientOutboundChannel: re-encodes JSON frames for CBOR sessions
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId != null && cborSessions.contains(sessionId)
+                && SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE
+                && message.getPayload() instanceof byte[] json
+                && isJson(headers.get(MessageHeaders.CONTENT_TYPE))) {
+            byte[] cbor = transcoded.getIfPresent(json);
+            if (cbor == null) {
+                try {
+                    JsonNode tree = jsonMapper.readTree(json);
+                    cbor = cborMapper.writeValueAsBytes(tree);
+                } catch (IOException e) {
+                    return message; // Not valid JSON after all; send as-is
+                }
+                transcoded.put(json, cbor);
+            }
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            accessor.setNativeHeader(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE);
+            accessor.setNativeHeader(FORMAT_HEADER, CBOR.toString());
+            return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+        }
+        return message;
+    }
+
+    private boolean isJson(Object contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MimeType mimeType = contentType instanceof MimeType m ? m : MimeType.valueOf(contentType.toString());
+        return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+}
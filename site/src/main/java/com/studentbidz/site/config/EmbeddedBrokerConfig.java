@@ -0,0 +1,37 @@
+package com.studentbidz.site.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// In-process ActiveMQ Artemis broker speaking STOMP, for running the broker relay locally and in tests.
+// Production nodes should point app.websocket.relay.* at a shared external broker instead; Artemis is an
+// optional dependency that the packaged jar does not contain.
+@Configuration
+@ConditionalOnClass(name = "org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ")
+@ConditionalOnProperty(name = "app.websocket.embedded-broker.enabled", havingValue = "true")
+public class EmbeddedBrokerConfig {
+    @Value("${app.websocket.embedded-broker.host:localhost}")
+    private String host;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int port;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker() throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        // /topic/** destinations are multicast (pub/sub), matching the simple broker's semantics
+        configuration.addAcceptorConfiguration("stomp",
+            "tcp://" + host + ":" + port + "?protocols=STOMP;multicastPrefix=/topic/;anycastPrefix=/queue/");
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        return broker;
+    }
+}
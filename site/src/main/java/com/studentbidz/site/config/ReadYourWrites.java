@@ -0,0 +1,65 @@
+package com.studentbidz.site.config;
+
+import com.studentbidz.site.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Remembers who wrote recently so their next requests read from the primary instead of a lagging replica.
+// ReadYourWritesInterceptor pins the current thread; DataSourceRoutingConfig consults isPinned().
+// Writers are remembered in this node's memory only, so the guarantee holds for requests served by the same node.
+@Component
+public class ReadYourWrites {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    @Value("${app.datasource.replica.read-your-writes-window:PT5S}")
+    private Duration window;
+
+    private final Map<String, Long> recentWriters = new ConcurrentHashMap<>();
+
+    public void markWrite(Principal principal) {
+        String username = username(principal);
+        if (username != null) {
+            recentWriters.put(username, System.nanoTime() + window.toNanos());
+        }
+    }
+
+    public boolean wroteRecently(Principal principal) {
+        String username = username(principal);
+        Long until = username != null ? recentWriters.get(username) : null;
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+    // HTTP requests carry the Authentication JwtFilter set, whose getName() is the User entity's toString();
+    // STOMP sessions carry the username itself. Both must give the same key.
+    private static String username(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getUsername();
+        }
+        return principal != null ? principal.getName() : null;
+    }
+
+    public static void pin(boolean pinned) {
+        if (pinned) {
+            PINNED.set(Boolean.TRUE);
+        } else {
+            PINNED.remove();
+        }
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void prune() {
+        long now = System.nanoTime();
+        recentWriters.values().removeIf(until -> until - now <= 0);
+    }
+}
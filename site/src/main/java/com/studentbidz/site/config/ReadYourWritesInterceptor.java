@@ -0,0 +1,29 @@
+package com.studentbidz.site.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Pins requests from users who just wrote to the primary, and records successful mutating requests as writes
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+        ReadYourWrites.pin(readYourWrites.wroteRecently(request.getUserPrincipal()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler, Exception ex) {
+        ReadYourWrites.pin(false);
+        if (ex == null && response.getStatus() < 400 && !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            readYourWrites.markWrite(request.getUserPrincipal());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.studentbidz.site.config;
 
 import com.studentbidz.site.security.JwtFilter;
+import com.studentbidz.site.service.IdempotencyStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,7 +35,7 @@ public class SecurityConfig {
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/register", "/login", "/images/**").permitAll()
+                .requestMatchers("/register", "/login", "/images/**", "/error").permitAll()
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
@@ -49,6 +50,7 @@ public class SecurityConfig {
         config.addAllowedOriginPattern("https://*.vercel.app"); // Vercel frontend
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
+        config.addExposedHeader(IdempotencyStore.REPLAYED_HEADER);
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
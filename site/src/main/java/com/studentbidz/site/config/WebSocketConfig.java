@@ -1,18 +1,34 @@
 package com.studentbidz.site.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.lang.NonNull;
 import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import java.security.Principal;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 import com.studentbidz.site.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.Nullable;
 
 
@@ -22,22 +38,183 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired
     private JwtUtil jwtUtil;
 
+    // "simple" keeps subscriptions in this JVM; "relay" forwards them to an external STOMP broker
+    // so that every node sees every broadcast
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                // Share user sessions across nodes so /user destinations resolve on any node
+                .setUserDestinationBroadcast("/topic/unresolved-user")
+                .setUserRegistryBroadcast("/topic/user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    // Inbound: frames from clients (SEND, SUBSCRIBE). Outbound: frames to clients (broadcasts).
+    // Bounded queues push back instead of buffering without limit under a burst: a full inbound queue
+    // makes the client's own connection thread handle its frame, slowing that client down without
+    // losing its bid. A full outbound queue drops broadcast frames only (the next broadcast or snapshot
+    // carries the current state); frames addressed to one user, such as bid receipts and chat, are sent
+    // on the caller's thread instead so none is lost. Both are counted as websocket.channel.rejected.
+    @Value("${app.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:5000}")
+    private int outboundQueueCapacity;
+
+    // A session that cannot drain its send buffer within these limits is closed, so one slow
+    // client never holds an outbound thread for longer than the send time limit
+    @Value("${app.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimit;
+
+    @Value("${app.websocket.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Autowired
+    private WebSocketMetricsConfig.SlowConsumerTracker slowConsumerTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private CompactEncodingInterceptor compactEncoding;
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.compactEncoding = new CompactEncodingInterceptor(objectMapper);
+    }
+
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("clientInboundChannel-", "inbound", new ThreadPoolExecutor.CallerRunsPolicy()))
+            .corePoolSize(inboundCorePoolSize)
+            .maxPoolSize(inboundMaxPoolSize)
+            .queueCapacity(inboundQueueCapacity);
+        registration.interceptors(compactEncoding.sessionTracker());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("clientOutboundChannel-", "outbound", new DiscardBroadcastsPolicy()))
+            .corePoolSize(outboundCorePoolSize)
+            .maxPoolSize(outboundMaxPoolSize)
+            .queueCapacity(outboundQueueCapacity);
+        registration.interceptors(compactEncoding);
+    }
+
+    // Spring sizes and initializes it as the channel's executor bean
+    private ThreadPoolTaskExecutor channelExecutor(String threadNamePrefix, String channel, RejectedExecutionHandler fallback) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new WebSocketMetricsConfig.CountingRejectionHandler(meterRegistry, channel, fallback));
+        return executor;
+    }
+
+    // Only a broadcast can be dropped safely; anything else is run by the thread that tried to queue it
+    static class DiscardBroadcastsPolicy implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (!isBroadcast(task)) {
+                callerRuns.rejectedExecution(task, executor);
+            }
+        }
+
+        // A frame resolved from a /user/... destination carries that destination in the simpOrigDestination
+        // native header, with either broker
+        static boolean isBroadcast(Runnable task) {
+            if (!(task instanceof MessageHandlingRunnable handling)) {
+                return false;
+            }
+            Map<String, Object> headers = handling.getMessage().getHeaders();
+            return SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE
+                && NativeMessageHeaderAccessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, headers) == null;
+        }
+    }
+
+    @Override
+    public boolean configureMessageConverters(@NonNull List<MessageConverter> messageConverters) {
+        // Used only for SEND frames with content-type application/cbor. Frames without a content-type are
+        // read and written as JSON by the Jackson converter Spring Boot registers alongside it.
+        messageConverters.add(compactEncoding.cborMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimit)
+            .setSendBufferSizeLimit(sendBufferSizeLimit)
+            .setMessageSizeLimit(messageSizeLimit)
+            .addDecoratorFactory(slowConsumerTracker);
+    }
+
+    // permessage-deflate: Tomcat negotiates it during the /ws upgrade whenever the client offers it
+    // (all current browsers do), so frames on the raw WebSocket endpoint are compressed on the wire.
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
+            .setHandshakeHandler(new JwtPrincipalHandshakeHandler())
             .addInterceptors(new JwtHandshakeInterceptor(jwtUtil))
             .setAllowedOriginPatterns("*").withSockJS();
         registry.addEndpoint("/ws")
+            .setHandshakeHandler(new JwtPrincipalHandshakeHandler())
             .addInterceptors(new JwtHandshakeInterceptor(jwtUtil))
             .setAllowedOriginPatterns("*"); // For pure WebSocket
     }
 
+    // Uses the username validated by JwtHandshakeInterceptor as the session principal, so
+    // @MessageMapping handlers and /user destinations see the bidder without re-parsing the JWT
+    public static class JwtPrincipalHandshakeHandler extends DefaultHandshakeHandler {
+        @Override
+        protected Principal determineUser(@NonNull ServerHttpRequest request, @NonNull WebSocketHandler wsHandler,
+                                          @NonNull Map<String, Object> attributes) {
+            Object username = attributes.get("user");
+            if (username instanceof String name) {
+                return () -> name;
+            }
+            return super.determineUser(request, wsHandler, attributes);
+        }
+    }
+
     // Inner class for JWT handshake interceptor
     public static class JwtHandshakeInterceptor implements HandshakeInterceptor {
         private final JwtUtil jwtUtil;
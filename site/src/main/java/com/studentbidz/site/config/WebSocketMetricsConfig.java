@@ -0,0 +1,101 @@
+package com.studentbidz.site.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class WebSocketMetricsConfig {
+    private static final Logger log = LoggerFactory.getLogger(WebSocketMetricsConfig.class);
+
+    // Queue depth and thread usage of the STOMP channels, tagged channel=inbound|outbound
+    @Bean
+    public MeterBinder webSocketChannelMetrics(
+            @Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inbound,
+            @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outbound) {
+        return registry -> {
+            bindExecutor(registry, "inbound", inbound);
+            bindExecutor(registry, "outbound", outbound);
+        };
+    }
+
+    private void bindExecutor(MeterRegistry registry, String channel, ThreadPoolTaskExecutor executor) {
+        Gauge.builder("websocket.channel.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize)
+            .tag("channel", channel)
+            .register(registry);
+        Gauge.builder("websocket.channel.active.threads", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .tag("channel", channel)
+            .register(registry);
+        Gauge.builder("websocket.channel.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+            .tag("channel", channel)
+            .register(registry);
+    }
+
+    @Bean
+    public SlowConsumerTracker slowConsumerTracker(MeterRegistry registry) {
+        return new SlowConsumerTracker(registry);
+    }
+
+    // Counts sessions that Spring closed for exceeding the send time or buffer limit
+    public static class SlowConsumerTracker implements WebSocketHandlerDecoratorFactory {
+        private final Counter evictions;
+
+        public SlowConsumerTracker(MeterRegistry registry) {
+            this.evictions = Counter.builder("websocket.sessions.evicted")
+                .description("Sessions closed because they could not keep up with outbound messages")
+                .register(registry);
+        }
+
+        @Override
+        @NonNull
+        public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+            return new WebSocketHandlerDecorator(handler) {
+                @Override
+                public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+                    if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)) {
+                        evictions.increment();
+                        log.info("Evicted slow consumer session {}", session.getId());
+                    }
+                    super.afterConnectionClosed(session, closeStatus);
+                }
+            };
+        }
+    }
+
+    // Counts tasks a STOMP channel executor refused because its queue was full, then hands them to
+    // fallback, which decides what happens to the frame
+    public static class CountingRejectionHandler implements RejectedExecutionHandler {
+        private final Counter rejected;
+        private final RejectedExecutionHandler fallback;
+
+        public CountingRejectionHandler(MeterRegistry registry, String channel, RejectedExecutionHandler fallback) {
+            this.rejected = Counter.builder("websocket.channel.rejected")
+                .description("Frames a STOMP channel could not queue")
+                .tag("channel", channel)
+                .register(registry);
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.increment();
+            fallback.rejectedExecution(task, executor);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.studentbidz.site.controller;
+
+import com.studentbidz.site.config.ReadYourWrites;
+import com.studentbidz.site.dto.AuctionSnapshotMessage;
+import com.studentbidz.site.dto.BidReceiptMessage;
+import com.studentbidz.site.dto.BidRequest;
+import com.studentbidz.site.dto.BidResponse;
+import com.studentbidz.site.service.AuctionSnapshotService;
+import com.studentbidz.site.service.BidService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.Principal;
+
+@Controller
+public class AuctionWebSocketController {
+    private static final Logger log = LoggerFactory.getLogger(AuctionWebSocketController.class);
+
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+
+    @Autowired
+    private BidService bidService;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    // Subscribing to /app/auction/{productId} replies once with the current auction state,
+    // so a page can render without REST calls before following /topic/bids/{productId}
+    @SubscribeMapping("/auction/{productId}")
+    public AuctionSnapshotMessage subscribeAuction(@DestinationVariable Long productId) {
+        return snapshotService.getSnapshot(productId).orElse(null);
+    }
+
+    // Bid over the already-authenticated socket; the outcome goes back only to the sending
+    // session on /user/queue/bid-receipts, while accepted bids still broadcast on /topic/bids
+    @MessageMapping("/bids/{productId}")
+    @SendToUser(destinations = "/queue/bid-receipts", broadcast = false)
+    public BidReceiptMessage placeBid(@DestinationVariable Long productId, BidRequest request, Principal principal) {
+        if (principal == null) {
+            return BidReceiptMessage.rejected(productId, request.getAmount(), "Not authenticated");
+        }
+        if (request.getAmount() == null) {
+            return BidReceiptMessage.rejected(productId, null, "Bid amount is required");
+        }
+        try {
+            BidResponse bid = bidService.placeBid(productId, request, principal.getName());
+            // Same as ReadYourWritesInterceptor does for HTTP: the bidder's next reads go to the primary
+            readYourWrites.markWrite(principal);
+            return BidReceiptMessage.accepted(productId, bid);
+        } catch (ResponseStatusException e) {
+            return BidReceiptMessage.rejected(productId, request.getAmount(), e.getReason());
+        }
+    }
+
+    // Anything else that fails a bid, including a payload that cannot be read, still answers with a
+    // receipt so the client is not left waiting for one. A failed subscription gets no reply.
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/bid-receipts", broadcast = false)
+    public BidReceiptMessage bidFailed(@DestinationVariable Long productId, Exception e, SimpMessageHeaderAccessor headers) {
+        if (headers.getMessageType() != SimpMessageType.MESSAGE) {
+            log.warn("Subscription to auction {} failed", productId, e);
+            return null;
+        }
+        log.warn("Bid over WebSocket on product {} failed", productId, e);
+        return BidReceiptMessage.rejected(productId, null, "Bid could not be placed");
+    }
+}
@@ -2,8 +2,11 @@ package com.studentbidz.site.controller;
 
 import com.studentbidz.site.dto.BidRequest;
 import com.studentbidz.site.dto.BidResponse;
+import com.studentbidz.site.dto.ProxyBidRequest;
+import com.studentbidz.site.dto.ProxyBidResponse;
 import com.studentbidz.site.entity.User;
 import com.studentbidz.site.service.BidService;
+import com.studentbidz.site.service.IdempotencyStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,13 +21,39 @@ public class BidController {
     @Autowired
     private BidService bidService;
 
-    // Place or re-bid on a product
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    // Place or re-bid on a product. A retry with the same Idempotency-Key gets the original response.
     @PostMapping("/products/{productId}/bids")
     public ResponseEntity<BidResponse> placeBid(@PathVariable Long productId,
                                                 @RequestBody BidRequest request,
+                                                @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
                                                 @AuthenticationPrincipal User user) {
-        BidResponse response = bidService.placeBid(productId, request, user.getUsername());
-        return ResponseEntity.ok(response);
+        // 20 and 20.00 are the same bid, so a retry that formats the amount differently still matches
+        String fingerprint = request.getAmount() != null ? request.getAmount().stripTrailingZeros().toPlainString() : null;
+        return idempotencyStore.execute(idempotencyKey, user.getUsername(), "bid:" + productId, fingerprint,
+            () -> bidService.placeBid(productId, request, user.getUsername()));
+    }
+
+    // Register or change a hidden maximum bid; the engine bids up to it whenever the caller is outbid
+    @PutMapping("/products/{productId}/proxy-bid")
+    public ResponseEntity<ProxyBidResponse> setProxyBid(@PathVariable Long productId,
+                                                        @RequestBody ProxyBidRequest request,
+                                                        @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(bidService.setProxyBid(productId, request, user.getUsername()));
+    }
+
+    // The caller's own maximum bid on a product, if any
+    @GetMapping("/products/{productId}/proxy-bid")
+    public ResponseEntity<ProxyBidResponse> getProxyBid(@PathVariable Long productId, @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(bidService.getProxyBid(productId, user.getUsername()));
+    }
+
+    @DeleteMapping("/products/{productId}/proxy-bid")
+    public ResponseEntity<Void> cancelProxyBid(@PathVariable Long productId, @AuthenticationPrincipal User user) {
+        bidService.cancelProxyBid(productId, user.getUsername());
+        return ResponseEntity.ok().build();
     }
 
     // Get all bids for a product
@@ -4,9 +4,11 @@ import com.studentbidz.site.dto.MessageResponse;
 import com.studentbidz.site.service.MessageService;
 import com.studentbidz.site.entity.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @RestController
@@ -18,8 +20,14 @@ public class ChatController {
     @GetMapping
     public ResponseEntity<List<MessageResponse>> getChatHistory(
             @PathVariable Long productId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long sinceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime sinceCreatedAt,
+            @RequestParam(defaultValue = "50") int limit,
             @AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(messageService.getChatHistory(productId, user.getUsername()));
+        return ResponseEntity.ok(messageService.getChatHistory(productId, user.getUsername(),
+            before, beforeCreatedAt, sinceId, sinceCreatedAt, limit));
     }
 
     @PostMapping
@@ -1,33 +1,44 @@
 package com.studentbidz.site.controller;
 
+import com.studentbidz.site.config.ReadYourWrites;
 import com.studentbidz.site.dto.MessageResponse;
-import com.studentbidz.site.service.MessageService;
+import com.studentbidz.site.service.ChatWriteBehindService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.*;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
+
 @Controller
 public class ChatWebSocketController {
     @Autowired
-    private MessageService messageService;
+    private ChatWriteBehindService chatWriteBehindService;
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private ReadYourWrites readYourWrites;
 
     @MessageMapping("/chat/{productId}")
-    public void sendChatMessage(@DestinationVariable Long productId, ChatMessagePayload payload) {
-        // Save message and broadcast to topic
-        MessageResponse saved = messageService.saveMessage(productId, payload.getSenderUsername(), payload.getContent());
-        messagingTemplate.convertAndSend("/topic/chat/" + productId, saved);
+    public void sendChatMessage(@DestinationVariable Long productId, ChatMessagePayload payload, Principal principal) {
+        // The sender is the authenticated session user; persistence happens in the background
+        // and is acknowledged on /user/queue/chat-acks
+        MessageResponse message = chatWriteBehindService.send(productId, principal.getName(), payload.getContent(), payload.getClientMessageId());
+        // As for a STOMP bid: the sender's next HTTP reads go to the primary
+        readYourWrites.markWrite(principal);
+        messagingTemplate.convertAndSend("/topic/chat/" + productId, message);
     }
 
     public static class ChatMessagePayload {
         private String senderUsername;
         private String content;
+        private String clientMessageId;
         // getters/setters
         public String getSenderUsername() { return senderUsername; }
         public void setSenderUsername(String senderUsername) { this.senderUsername = senderUsername; }
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
+        public String getClientMessageId() { return clientMessageId; }
+        public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.studentbidz.site.controller;
+
+import com.studentbidz.site.dto.ConversationResponse;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.service.MessageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/conversations")
+public class ConversationController {
+    @Autowired
+    private MessageService messageService;
+
+    @GetMapping
+    public ResponseEntity<List<ConversationResponse>> getConversations(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(messageService.getConversations(user.getUsername()));
+    }
+
+    @PatchMapping("/{productId}/read")
+    public ResponseEntity<Void> markRead(
+            @PathVariable Long productId,
+            @RequestParam(required = false) Long lastReadMessageId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime lastReadCreatedAt,
+            @AuthenticationPrincipal User user) {
+        messageService.markRead(productId, user.getUsername(), lastReadMessageId, lastReadCreatedAt);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.studentbidz.site.controller;
+
+import com.studentbidz.site.service.ImageStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Serves content-addressed images. A URL never changes content, so generated variants are cached forever.
+// Bodies are written by Tomcat's sendfile when the connector supports it (the request thread returns
+// immediately and the kernel copies the file), otherwise straight from a FileChannel; single byte ranges
+// are honoured either way. Legacy /images/{filename} URLs are still served by the resource handler in WebConfig.
+@RestController
+public class ImageController {
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // The only types an original is served as; anything else goes out as application/octet-stream
+    private static final Set<MediaType> IMAGE_TYPES = Set.of(MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG,
+        MediaType.IMAGE_GIF, MediaType.parseMediaType("image/webp"));
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    // Below this, copying is cheaper than handing the file to the poller (Tomcat's own default is 48KB)
+    @Value("${app.images.sendfile-min-size:49152}")
+    private long sendfileMinSize;
+
+    @GetMapping("/images/{hash:[0-9a-f]{64}}/{variant}")
+    public void getImage(@PathVariable String hash, @PathVariable String variant,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ImageStorageService.VARIANTS.containsKey(variant)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = imageStorageService.variantPath(hash, variant);
+        if (path == null) {
+            // Variant still being generated: serve the original, but don't let anyone cache it as the variant
+            path = imageStorageService.originalPath(hash);
+            if (path == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+            MediaType type = MediaTypeFactory.getMediaType(path.getFileName().toString())
+                .filter(IMAGE_TYPES::contains)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            writeFile(path, type, request, response);
+        } else {
+            if (new ServletWebRequest(request, response).checkNotModified("\"" + hash + "-" + variant + "\"")) {
+                return;
+            }
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue());
+            writeFile(path, MediaType.IMAGE_JPEG, request, response);
+        }
+    }
+
+    private void writeFile(Path path, MediaType contentType, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(path);
+        long start = 0;
+        long end = length - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // Multipart ranges are never requested for images; the full body is a valid answer to them
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    if (start >= length) {
+                        throw new IllegalArgumentException("Range starts beyond the end of the file");
+                    }
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+        long count = end - start + 1;
+        response.setContentType(contentType.toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (count >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += file.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+}
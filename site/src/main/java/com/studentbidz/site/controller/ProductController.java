@@ -1,17 +1,33 @@
 package com.studentbidz.site.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studentbidz.site.dto.ProductCreateRequest;
 import com.studentbidz.site.dto.ProductResponse;
 import com.studentbidz.site.dto.AuctionTimeUpdateRequest;
 import com.studentbidz.site.dto.RelistProductRequest;
+import com.studentbidz.site.service.AuctionEventStream;
+import com.studentbidz.site.service.IdempotencyStore;
+import com.studentbidz.site.service.ImageStorageService;
 import com.studentbidz.site.service.ProductService;
 import com.studentbidz.site.entity.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import com.studentbidz.site.entity.Product;
 
@@ -21,13 +37,54 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private AuctionEventStream eventStream;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // A retry with the same Idempotency-Key gets the original listing instead of a duplicate
     @PostMapping
     public ResponseEntity<ProductResponse> createProduct(
             @RequestPart("product") ProductCreateRequest request,
             @RequestPart("image") MultipartFile image,
-            @AuthenticationPrincipal User user) {
-        ProductResponse response = productService.createProduct(request, image, user.getUsername());
-        return ResponseEntity.ok(response);
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal User user) throws IOException {
+        String fingerprint = idempotencyKey != null ? fingerprint(request, image) : null;
+        return idempotencyStore.execute(idempotencyKey, user.getUsername(), "create-product", fingerprint,
+            () -> productService.createProduct(request, image, user.getUsername()));
+    }
+
+    // SHA-256 over every field of the listing and the image bytes, so a key reused for any other listing is refused
+    private String fingerprint(ProductCreateRequest request, MultipartFile image) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectMapper.writeValueAsBytes(request));
+            try (InputStream in = new DigestInputStream(image.getInputStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Raw image body (Content-Type: image/*), streamed to the image store without multipart buffering
+    @PutMapping(value = "/{id}/image", consumes = "image/*")
+    public ResponseEntity<ProductResponse> replaceImage(
+            @PathVariable Long id,
+            HttpServletRequest request,
+            @AuthenticationPrincipal User user) throws IOException {
+        if (request.getContentLengthLong() > imageStorageService.getMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Image is too large");
+        }
+        return ResponseEntity.ok(productService.replaceImage(id, request.getInputStream(), user.getUsername()));
     }
 
     @GetMapping
@@ -36,6 +93,17 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Read-only live feeds for watchers who never bid; EventSource passes the JWT as ?token=
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProduct(@PathVariable Long id) {
+        return eventStream.subscribeProduct(id);
+    }
+
+    @GetMapping(value = "/ending-soon/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEndingSoon() {
+        return eventStream.subscribeEndingSoon();
+    }
+
     @GetMapping("/seller")
     public ResponseEntity<List<ProductResponse>> getSellerProducts(@AuthenticationPrincipal User user) {
         List<ProductResponse> sellerProducts = productService.getSellerProducts(user.getUsername());
@@ -0,0 +1,27 @@
+package com.studentbidz.site.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+public class AuctionSnapshotMessage {
+    private Long productId;
+    private BigDecimal currentPrice;
+    private String leaderUsername; // null while there are no bids
+    private OffsetDateTime endTime;
+    private String status;
+
+    public AuctionSnapshotMessage() {}
+
+    public AuctionSnapshotMessage(Long productId, BigDecimal currentPrice, String leaderUsername, OffsetDateTime endTime, String status) {
+        this.productId = productId;
+        this.currentPrice = currentPrice;
+        this.leaderUsername = leaderUsername;
+        this.endTime = endTime;
+        this.status = status;
+    }
+}
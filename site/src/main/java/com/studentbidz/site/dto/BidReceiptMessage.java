@@ -0,0 +1,40 @@
+package com.studentbidz.site.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+public class BidReceiptMessage {
+    private Long productId;
+    private boolean accepted;
+    private Long bidId;
+    private BigDecimal amount;
+    private OffsetDateTime timestamp;
+    private String message; // Rejection reason, null when accepted
+
+    public BidReceiptMessage() {}
+
+    public static BidReceiptMessage accepted(Long productId, BidResponse bid) {
+        BidReceiptMessage receipt = new BidReceiptMessage();
+        receipt.setProductId(productId);
+        receipt.setAccepted(true);
+        receipt.setBidId(bid.getId());
+        receipt.setAmount(bid.getAmount());
+        receipt.setTimestamp(bid.getTimestamp());
+        return receipt;
+    }
+
+    public static BidReceiptMessage rejected(Long productId, BigDecimal amount, String message) {
+        BidReceiptMessage receipt = new BidReceiptMessage();
+        receipt.setProductId(productId);
+        receipt.setAccepted(false);
+        receipt.setAmount(amount);
+        receipt.setTimestamp(OffsetDateTime.now());
+        receipt.setMessage(message);
+        return receipt;
+    }
+}
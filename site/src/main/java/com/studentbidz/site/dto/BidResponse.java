@@ -13,5 +13,6 @@ public class BidResponse {
     private OffsetDateTime timestamp;
     private String bidderUsername;
     private Long bidderId;
+    private boolean auto;
     private ProductResponse product;
 } 
\ No newline at end of file
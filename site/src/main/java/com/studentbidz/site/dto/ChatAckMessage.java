@@ -0,0 +1,18 @@
+package com.studentbidz.site.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Sent to /user/queue/chat-acks once a chat message has been written to the database (or failed to be)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatAckMessage {
+    private Long productId;
+    private Long messageId;
+    private String clientMessageId;
+    private boolean persisted;
+}
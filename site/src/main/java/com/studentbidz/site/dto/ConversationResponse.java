@@ -0,0 +1,24 @@
+package com.studentbidz.site.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationResponse {
+    private Long productId;
+    private String productTitle;
+    private String productImageUrl;
+    private String otherUsername;
+    private Long lastMessageId;
+    private String lastMessageContent;
+    private String lastMessageSenderUsername;
+    private OffsetDateTime lastMessageAt;
+    private Integer unreadCount;
+}
@@ -1,9 +1,13 @@
 package   com.studentbidz.site.dto;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Getter
 @Setter
+@NoArgsConstructor
+@AllArgsConstructor
 public class MessageResponse {
     private Long id;
     private String content;
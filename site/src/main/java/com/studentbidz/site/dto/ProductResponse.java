@@ -14,6 +14,7 @@ public class ProductResponse {
     private String title;
     private String description;
     private String imageUrl;
+    private String thumbnailUrl;
     private BigDecimal startingPrice;
     private OffsetDateTime endTime;
     private String sellerUsername;
@@ -0,0 +1,12 @@
+package com.studentbidz.site.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class ProxyBidRequest {
+    private BigDecimal maxAmount;
+}
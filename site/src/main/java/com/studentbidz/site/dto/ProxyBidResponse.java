@@ -0,0 +1,19 @@
+package com.studentbidz.site.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProxyBidResponse {
+    private Long productId;
+    private BigDecimal maxAmount; // Only ever shown to the bidder who registered it
+    private BigDecimal currentPrice;
+    private boolean leading;
+}
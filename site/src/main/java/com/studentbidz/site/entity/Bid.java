@@ -21,6 +21,10 @@ public class Bid {
     @Column(nullable = false)
     private OffsetDateTime timestamp;
 
+    // Placed by the proxy bidding engine on the bidder's behalf
+    @Column(nullable = false)
+    private boolean auto;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -0,0 +1,36 @@
+package com.studentbidz.site.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+// Per-participant read marker and unread counter for a product chat.
+// Rows are upserted by ConversationStateRepository; unreadCount is maintained incrementally.
+@Getter
+@Setter
+@Entity
+@Table(name = "conversation_states",
+       uniqueConstraints = @UniqueConstraint(name = "uk_conversation_states_product_user", columnNames = {"product_id", "user_id"}))
+public class ConversationState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private int unreadCount;
+
+    // Read position in (createdAt, id) order, the order chat is shown in; both null until the first read
+    private OffsetDateTime lastReadCreatedAt;
+
+    private Long lastReadMessageId;
+}
@@ -8,7 +8,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = @Index(name = "idx_messages_product_created_id", columnList = "product_id, created_at, id"))
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,11 +5,15 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Getter
 @Setter
 @Entity
 @Table(name = "products")
+// Only changed columns are written, so saving a product cannot overwrite an end time that place_bid
+// extended concurrently
+@DynamicUpdate
 public class Product {
     public enum Status { ACTIVE, ENDED, SOLD }
     public enum Type { BOOKS, ELECTRONICS, CLOTHING, STATIONARY, ACCESSORIES, OTHERS }
@@ -32,6 +36,11 @@ public class Product {
     @Column(nullable = false)
     private OffsetDateTime endTime;
 
+    // Highest accepted bid (null before the first). Written only by the place_bid database function's
+    // compare-and-set and by ProductRepository.refreshCurrentPrice, never by Hibernate.
+    @Column(insertable = false, updatable = false)
+    private BigDecimal currentPrice;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id", nullable = false)
     private User seller;
@@ -56,6 +65,9 @@ public class Product {
     )
     private java.util.Set<User> restrictedBidders = new java.util.HashSet<>();
 
+    @Column
+    private OffsetDateTime warnedAt; // When the 30-minute ending warning was sent (null = not yet sent)
+
     @Column(nullable = false, updatable = false)
     private OffsetDateTime createdAt;
 
@@ -0,0 +1,34 @@
+package com.studentbidz.site.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import lombok.Getter;
+import lombok.Setter;
+
+// A bidder's hidden maximum for a product; ProxyBidService bids on their behalf up to maxAmount.
+// createdAt breaks ties between equal maximums: the earlier registration wins.
+@Getter
+@Setter
+@Entity
+@Table(name = "proxy_bids",
+       uniqueConstraints = @UniqueConstraint(name = "uk_proxy_bids_product_bidder", columnNames = {"product_id", "bidder_id"}))
+public class ProxyBid {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bidder_id", nullable = false)
+    private User bidder;
+
+    @Column(nullable = false)
+    private BigDecimal maxAmount;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+}
@@ -8,25 +8,33 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
+// Bids are append-only: a re-bid inserts a new row and the bidder's older rows stay as price history.
+// A bidder's current bid on a product is their latest row, i.e. the one with no newer row after it.
 public interface BidRepository extends JpaRepository<Bid, Long> {
-    List<Bid> findByProduct(Product product);
-    List<Bid> findByProductOrderByAmountDesc(Product product);
+    String IS_CURRENT = "NOT EXISTS (SELECT 1 FROM Bid n WHERE n.product = b.product AND n.bidder = b.bidder AND n.id > b.id)";
+
     List<Bid> findByBidder(User bidder);
+    @Query("SELECT b FROM Bid b WHERE b.product = :product AND " + IS_CURRENT)
+    List<Bid> findCurrentByProduct(@Param("product") Product product);
+    @Query("SELECT b FROM Bid b WHERE b.product = :product AND " + IS_CURRENT + " ORDER BY b.amount DESC")
+    List<Bid> findCurrentByProductOrderByAmountDesc(@Param("product") Product product);
+    @Query("SELECT b FROM Bid b WHERE b.bidder = :bidder AND " + IS_CURRENT)
+    List<Bid> findCurrentByBidder(@Param("bidder") User bidder);
+    // Every bid is above the highest before it, so the overall highest bid is always a current one
     Optional<Bid> findTopByProductOrderByAmountDesc(Product product);
-    Optional<Bid> findByProductAndBidder(Product product, User bidder);
     List<Bid> findDistinctByProductAndBidderIsNotNull(Product product);
+    @Query("SELECT DISTINCT b.bidder FROM Bid b WHERE b.product = :product")
+    List<User> findDistinctBiddersByProduct(@Param("product") Product product);
     void deleteByProduct(Product product);
+
+    @Modifying
+    @Query("DELETE FROM Bid b WHERE b.product = :product AND b.bidder = :bidder")
+    void deleteByProductAndBidder(@Param("product") Product product, @Param("bidder") User bidder);
     
     @Modifying
     @Query("DELETE FROM Bid b WHERE b.product = :product AND b.id != :excludeId")
     void deleteByProductAndIdNot(@Param("product") Product product, @Param("excludeId") Long excludeId);
-    Optional<Bid> findTopByProductAndBidderOrderByTimestampDesc(Product product, User bidder);
-    @Query("SELECT COUNT(b) FROM Bid b WHERE b.bidder = :bidder AND b.timestamp >= :since")
-    long countByBidderSince(@Param("bidder") User bidder, @Param("since") OffsetDateTime since);
-    @Query("SELECT COUNT(b) FROM Bid b WHERE b.bidder = :bidder AND b.timestamp >= :since AND b.product = :product")
-    long countByBidderAndProductSince(@Param("bidder") User bidder, @Param("product") Product product, @Param("since") OffsetDateTime since);
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.studentbidz.site.repository;
+
+import com.studentbidz.site.entity.ConversationState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+// A message counts as unread when it was sent to the user and comes after their read position in
+// (created_at, id) order. Both updates lock the user's row, so they apply one after the other: a message
+// is added to the count when it is stored, only if it is past the position at that time, and taken off
+// when the position moves past it. Messages stored late by write-behind are handled by the same rule.
+public interface ConversationStateRepository extends JpaRepository<ConversationState, Long> {
+    // Counts only those of the given (just inserted) messages that are past the user's read position
+    @Modifying
+    @Query(value = "INSERT INTO conversation_states (product_id, user_id, unread_count) VALUES (:productId, :userId, :#{#messageIds.size()}) " +
+                   "ON CONFLICT (product_id, user_id) DO UPDATE SET unread_count = conversation_states.unread_count + (" +
+                   "SELECT COUNT(*) FROM messages m WHERE m.id IN (:messageIds) " +
+                   "AND (conversation_states.last_read_created_at IS NULL " +
+                   "OR (m.created_at, m.id) > (conversation_states.last_read_created_at, conversation_states.last_read_message_id)))",
+           nativeQuery = true)
+    void incrementUnread(@Param("productId") Long productId, @Param("userId") Long userId, @Param("messageIds") List<Long> messageIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO conversation_states (product_id, user_id, unread_count) VALUES (:productId, :userId, 0) " +
+                   "ON CONFLICT (product_id, user_id) DO NOTHING",
+           nativeQuery = true)
+    void ensureExists(@Param("productId") Long productId, @Param("userId") Long userId);
+
+    // Held until the transaction ends. markRead must run as a separate statement after this, so that it sees
+    // every message whose count was added before the lock was granted.
+    @Query(value = "SELECT id FROM conversation_states WHERE product_id = :productId AND user_id = :userId FOR UPDATE",
+           nativeQuery = true)
+    Long lock(@Param("productId") Long productId, @Param("userId") Long userId);
+
+    // Moves the read position forward only, taking off the messages sent to the user that it passes
+    @Modifying
+    @Query(value = "UPDATE conversation_states cs SET " +
+                   "unread_count = GREATEST(0, cs.unread_count - (" +
+                   "SELECT COUNT(*) FROM messages m WHERE m.product_id = cs.product_id AND m.receiver_id = cs.user_id " +
+                   "AND (cs.last_read_created_at IS NULL OR (m.created_at, m.id) > (cs.last_read_created_at, cs.last_read_message_id)) " +
+                   "AND (m.created_at, m.id) <= (:createdAt, :messageId))), " +
+                   "last_read_created_at = :createdAt, last_read_message_id = :messageId " +
+                   "WHERE cs.product_id = :productId AND cs.user_id = :userId " +
+                   "AND (cs.last_read_created_at IS NULL OR (cs.last_read_created_at, cs.last_read_message_id) < (:createdAt, :messageId))",
+           nativeQuery = true)
+    void markRead(@Param("productId") Long productId, @Param("userId") Long userId,
+                  @Param("createdAt") OffsetDateTime createdAt, @Param("messageId") Long messageId);
+}
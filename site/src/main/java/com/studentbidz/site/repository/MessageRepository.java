@@ -1,12 +1,58 @@
 package com.studentbidz.site.repository;
 
+import com.studentbidz.site.dto.ConversationResponse;
+import com.studentbidz.site.dto.MessageResponse;
 import com.studentbidz.site.entity.Message;
 import com.studentbidz.site.entity.Product;
 import com.studentbidz.site.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByProductOrderByCreatedAtAsc(Product product);
     List<Message> findByProductAndSenderOrProductAndReceiverOrderByCreatedAtAsc(Product product, User sender, Product product2, User receiver);
-} 
\ No newline at end of file
+
+    // Chat pages are projected straight into MessageResponse so sender and receiver come from the same query.
+    // Ordering is (createdAt, id) to match idx_messages_product_created_id. A cursor is the (createdAt, id) of
+    // the message the client already has, passed as values: that message may not be stored yet (write-behind)
+    // or ever, so it is never looked up.
+    @Query("SELECT new com.studentbidz.site.dto.MessageResponse(m.id, m.content, s.username, r.username, m.createdAt) " +
+           "FROM Message m JOIN m.sender s JOIN m.receiver r " +
+           "WHERE m.product.id = :productId " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findLatest(@Param("productId") Long productId, Pageable pageable);
+
+    @Query("SELECT new com.studentbidz.site.dto.MessageResponse(m.id, m.content, s.username, r.username, m.createdAt) " +
+           "FROM Message m JOIN m.sender s JOIN m.receiver r " +
+           "WHERE m.product.id = :productId " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findBefore(@Param("productId") Long productId, @Param("createdAt") OffsetDateTime createdAt,
+                                     @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT new com.studentbidz.site.dto.MessageResponse(m.id, m.content, s.username, r.username, m.createdAt) " +
+           "FROM Message m JOIN m.sender s JOIN m.receiver r " +
+           "WHERE m.product.id = :productId " +
+           "AND (m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.id > :id)) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<MessageResponse> findSince(@Param("productId") Long productId, @Param("createdAt") OffsetDateTime createdAt,
+                                    @Param("id") Long id, Pageable pageable);
+
+    // Every chat the user takes part in, with its latest message in (createdAt, id) order and the user's unread
+    // count, in one query
+    @Query("SELECT new com.studentbidz.site.dto.ConversationResponse(p.id, p.title, p.imageUrl, " +
+           "CASE WHEN s.id = :userId THEN w.username ELSE s.username END, " +
+           "m.id, m.content, ms.username, m.createdAt, COALESCE(cs.unreadCount, 0)) " +
+           "FROM Product p JOIN p.seller s JOIN p.winner w " +
+           "LEFT JOIN Message m ON m.product = p AND NOT EXISTS (SELECT 1 FROM Message m2 WHERE m2.product = p " +
+           "AND (m2.createdAt > m.createdAt OR (m2.createdAt = m.createdAt AND m2.id > m.id))) " +
+           "LEFT JOIN m.sender ms " +
+           "LEFT JOIN ConversationState cs ON cs.product = p AND cs.user.id = :userId " +
+           "WHERE s.id = :userId OR w.id = :userId " +
+           "ORDER BY m.createdAt DESC NULLS LAST, p.id DESC")
+    List<ConversationResponse> findConversations(@Param("userId") Long userId);
+}
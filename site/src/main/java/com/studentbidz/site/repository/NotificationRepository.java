@@ -21,6 +21,4 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Modifying
     @Query("UPDATE Notification n SET n.status = 'READ' WHERE n.id = :id")
     void markAsRead(@Param("id") Long id);
-
-    boolean existsByUserUsernameAndTypeAndProductIdAndTag(String username, Notification.Type type, Long productId, String tag);
 } 
\ No newline at end of file
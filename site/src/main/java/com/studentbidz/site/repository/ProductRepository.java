@@ -2,10 +2,16 @@ package com.studentbidz.site.repository;
 
 import com.studentbidz.site.entity.Product;
 import com.studentbidz.site.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findBySeller(User seller);
@@ -13,10 +19,27 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByWinner(User winner);
     List<Product> findByStatus(Product.Status status);
     List<Product> findByStatusAndEndTimeBetween(Product.Status status, OffsetDateTime start, OffsetDateTime end);
+    List<Product> findByStatusAndWarnedAtIsNullAndEndTimeBetween(Product.Status status, OffsetDateTime start, OffsetDateTime end);
     List<Product> findByStatusAndEndTimeBefore(Product.Status status, OffsetDateTime time);
     List<Product> findByTypeAndStatusOrderByEndTimeAsc(Product.Type type, Product.Status status);
     List<Product> findByStatusOrderByEndTimeAsc(Product.Status status);
+
+    @Query("SELECT p.imageUrl FROM Product p WHERE p.imageUrl IN :imageUrls")
+    List<String> findReferencedImageUrls(@Param("imageUrls") Collection<String> imageUrls);
     
     @Query("SELECT p FROM Product p WHERE p.status = 'ACTIVE' ORDER BY p.createdAt DESC")
     List<Product> findActiveProducts();
+
+    // Takes the row lock that place_bid's compare-and-set needs, so no bid is accepted until the caller's
+    // transaction ends. Callers that remove bids hold it across the delete and refreshCurrentPrice.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    // Recomputes current_price after bids were removed (withdrawal, relist). Only safe while the row is locked
+    // through findByIdForUpdate: otherwise a bid accepted in between could be overwritten with a lower price.
+    @Modifying
+    @Query(value = "UPDATE products SET current_price = (SELECT max(b.amount) FROM bids b WHERE b.product_id = :id) WHERE id = :id",
+           nativeQuery = true)
+    void refreshCurrentPrice(@Param("id") Long id);
 } 
\ No newline at end of file
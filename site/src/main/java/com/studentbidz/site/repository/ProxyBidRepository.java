@@ -0,0 +1,27 @@
+package com.studentbidz.site.repository;
+
+import com.studentbidz.site.entity.ProxyBid;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProxyBidRepository extends JpaRepository<ProxyBid, Long> {
+    Optional<ProxyBid> findByProductIdAndBidderId(Long productId, Long bidderId);
+
+    // Proxies that could still raise the price above the given amount
+    @Query("SELECT p FROM ProxyBid p WHERE p.product.id = :productId AND p.maxAmount > :price")
+    List<ProxyBid> findAbove(@Param("productId") Long productId, @Param("price") BigDecimal price);
+
+    @Modifying
+    @Query("DELETE FROM ProxyBid p WHERE p.product.id = :productId")
+    void deleteByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM ProxyBid p WHERE p.product.id = :productId AND p.bidder.id = :bidderId")
+    int deleteByProductIdAndBidderId(@Param("productId") Long productId, @Param("bidderId") Long bidderId);
+}
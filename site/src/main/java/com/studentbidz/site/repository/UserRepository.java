@@ -4,7 +4,7 @@ import com.studentbidz.site.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
  
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
+// findByUsername comes from UserRepositoryCustom
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
-} 
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.studentbidz.site.repository;
+
+import com.studentbidz.site.entity.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,38 @@
+package com.studentbidz.site.repository;
+
+import com.studentbidz.site.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import java.util.Optional;
+
+// Loads by natural id: the username resolves to the id through the natural-id cache and the user then comes
+// from the entity cache, so a registration invalidates nothing but its own entries. Unknown usernames are not
+// cached and always go to the database.
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        // The session of the surrounding transaction (or open-in-view request) when there is one. The shared
+        // EntityManager cannot be used outside one: the session it unwraps to is closed after that call.
+        EntityManager bound = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (bound != null) {
+            return load(bound, username);
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return load(entityManager, username);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static Optional<User> load(EntityManager entityManager, String username) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(username);
+    }
+}
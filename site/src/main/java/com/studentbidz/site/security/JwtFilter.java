@@ -37,8 +37,8 @@ public class JwtFilter extends OncePerRequestFilter {
         }
 
         final String authHeader;
-        if (request.getServletPath().equals("/ws")) {
-            // For WebSocket handshake, get token from query parameter if header is missing
+        if (request.getServletPath().equals("/ws") || request.getServletPath().endsWith("/stream")) {
+            // For WebSocket handshake and EventSource streams, get token from query parameter if header is missing
             String tokenParam = request.getParameter("token");
             if (tokenParam != null && !tokenParam.isEmpty()) {
                 authHeader = "Bearer " + tokenParam;
@@ -0,0 +1,25 @@
+package com.studentbidz.site.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Runs a change to an in-memory cache once the surrounding transaction commits, or straight away when
+// there is none, so a rolled-back write never shows up in the cache and a concurrent read cannot reload
+// the state from before the write after the change was applied.
+final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    static void run(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
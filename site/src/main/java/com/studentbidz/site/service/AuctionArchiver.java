@@ -0,0 +1,93 @@
+package com.studentbidz.site.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Moves the bids and notifications of auctions that closed more than app.archive.after-days ago from
+// the live partitions into bids_archive / notifications_archive (see V3 migration). Rows change
+// partition by flipping the archived column, so every query on bids and notifications still sees them.
+@Service
+public class AuctionArchiver {
+    private static final Logger log = LoggerFactory.getLogger(AuctionArchiver.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.archive.after-days:30}")
+    private int afterDays;
+
+    @Value("${app.archive.batch-size:200}")
+    private int batchSize;
+
+    private final Counter archivedBids;
+    private final Counter archivedNotifications;
+
+    public AuctionArchiver(MeterRegistry meterRegistry) {
+        this.archivedBids = Counter.builder("archive.bids.moved")
+            .description("Bids moved to the archive partition")
+            .register(meterRegistry);
+        this.archivedNotifications = Counter.builder("archive.notifications.moved")
+            .description("Notifications moved to the archive partition")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.archive.initial-delay-ms:600000}", fixedDelayString = "${app.archive.interval-ms:3600000}")
+    public void archiveClosedAuctions() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofDays(afterDays)));
+        try {
+            Integer products;
+            do {
+                products = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            } while (products != null && products == batchSize);
+        } catch (Exception e) {
+            log.warn("Auction archival failed", e);
+        }
+    }
+
+    // Brings a relisted product's rows back into the live partitions
+    public void restore(Long productId) {
+        jdbcTemplate.update("UPDATE bids SET archived = false WHERE archived AND product_id = ?", productId);
+        jdbcTemplate.update("UPDATE notifications SET archived = false WHERE archived AND product_id = ?", productId);
+    }
+
+    private int archiveBatch(Timestamp cutoff) {
+        // Locking the product rows keeps a concurrent relist from interleaving with the move;
+        // SKIP LOCKED lets several nodes archive side by side
+        List<Long> productIds = jdbcTemplate.queryForList(
+            "SELECT p.id FROM products p WHERE p.status <> 'ACTIVE' AND p.end_time < ? " +
+            "AND (EXISTS (SELECT 1 FROM bids_live b WHERE b.product_id = p.id) " +
+            "OR EXISTS (SELECT 1 FROM notifications_live n WHERE n.product_id = p.id)) " +
+            "ORDER BY p.end_time LIMIT ? FOR UPDATE OF p SKIP LOCKED",
+            Long.class, cutoff, batchSize);
+        if (productIds.isEmpty()) {
+            return 0;
+        }
+        archivedBids.increment(moveToArchive("bids", productIds));
+        archivedNotifications.increment(moveToArchive("notifications", productIds));
+        return productIds.size();
+    }
+
+    private int moveToArchive(String table, List<Long> productIds) {
+        return jdbcTemplate.update("UPDATE " + table + " SET archived = true WHERE NOT archived AND product_id = ANY (?)", ps -> {
+            Array ids = ps.getConnection().createArrayOf("bigint", productIds.toArray());
+            ps.setArray(1, ids);
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.studentbidz.site.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+// Single place that publishes auction events: to /topic/{event}/{productId} for STOMP subscribers and
+// to the SSE streams for passive watchers. The payload is only built when someone will receive it.
+@Service
+public class AuctionBroadcaster {
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private AuctionEventStream eventStream;
+
+    public void broadcast(Long productId, String event, Supplier<?> payload) {
+        String destination = "/topic/" + event + "/" + productId;
+        boolean toStomp = subscriptionRegistry.hasSubscribers(destination);
+        boolean toSse = eventStream.hasWatchers(productId);
+        if (!toStomp && !toSse) {
+            return;
+        }
+        Object message = payload.get();
+        if (toStomp) {
+            messagingTemplate.convertAndSend(destination, message);
+        }
+        if (toSse) {
+            eventStream.publish(productId, event, message);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.studentbidz.site.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Read-only Server-Sent Events feed for passive watchers: one stream per product plus one for
+// auctions ending soon. Events are serialised once and the same bytes are written to every emitter,
+// so a watcher costs an idle async request rather than a STOMP session.
+// Events are fanned out by one publisher thread with a bounded queue (app.sse.publish-queue-capacity), so a
+// bid never waits on a watcher's socket; when the queue is full the event is dropped and counted as
+// sse.events.dropped. The publisher only queues each event on its streams; a small pool of sender threads
+// (app.sse.sender-threads) does the blocking writes, one stream at a time per thread, so a slow watcher only
+// holds up its own stream. A stream with app.sse.max-pending-events unsent, or whose current write has taken
+// longer than app.sse.send-time-limit, is closed and counted as sse.streams.dropped; the client's
+// EventSource reconnects and starts again from a snapshot. A stream whose write fails is removed at once.
+@Service
+public class AuctionEventStream {
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.sse.timeout-ms:1800000}")
+    private long timeout;
+
+    @Value("${app.sse.ending-soon-window-minutes:60}")
+    private long endingSoonWindowMinutes;
+
+    @Value("${app.sse.max-pending-events:100}")
+    private int maxPendingEvents;
+
+    @Value("${app.sse.send-time-limit:PT10S}")
+    private Duration sendTimeLimit;
+
+    private final Map<Long, Set<Watcher>> productStreams = new ConcurrentHashMap<>();
+    private final Set<Watcher> endingSoonStreams = new CopyOnWriteArraySet<>();
+
+    private final ThreadPoolExecutor publisher;
+    private final ExecutorService senders;
+    private final Counter dropped;
+    private final Counter slowStreams;
+
+    public AuctionEventStream(MeterRegistry meterRegistry,
+                              @Value("${app.sse.publish-queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.sse.sender-threads:4}") int senderThreads) {
+        this.dropped = Counter.builder("sse.events.dropped")
+            .description("SSE events dropped because the publisher queue was full")
+            .register(meterRegistry);
+        this.slowStreams = Counter.builder("sse.streams.dropped")
+            .description("SSE streams closed because the client could not keep up")
+            .register(meterRegistry);
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "sse-publisher");
+            t.setDaemon(true);
+            return t;
+        }, (task, executor) -> dropped.increment());
+        // Unbounded, but each stream has at most one drain task queued or running
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "sse-sender-" + senderCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("sse.publish.queue.size", publisher, executor -> executor.getQueue().size())
+            .description("SSE events waiting for the publisher thread")
+            .register(meterRegistry);
+    }
+
+    public SseEmitter subscribeProduct(Long productId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Watcher watcher = new Watcher(emitter, () -> removeProductStream(productId, emitter));
+        // Start with the current state so the page needs no extra REST call; queued before the stream is
+        // registered, so it always comes first
+        snapshotService.getSnapshot(productId).ifPresent(snapshot -> watcher.offer(build("snapshot", snapshot)));
+        productStreams.compute(productId, (id, watchers) -> {
+            Set<Watcher> updated = watchers != null ? watchers : new CopyOnWriteArraySet<>();
+            updated.add(watcher);
+            return updated;
+        });
+        return emitter;
+    }
+
+    public SseEmitter subscribeEndingSoon() {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Watcher watcher = new Watcher(emitter, () -> endingSoonStreams.removeIf(w -> w.emitter == emitter));
+        endingSoonStreams.add(watcher);
+        return emitter;
+    }
+
+    // Whether the ending-soon streams want this product is left to the publisher thread
+    public boolean hasWatchers(Long productId) {
+        return productStreams.containsKey(productId) || !endingSoonStreams.isEmpty();
+    }
+
+    public int getWatcherCount(Long productId) {
+        Set<Watcher> watchers = productStreams.get(productId);
+        return watchers != null ? watchers.size() : 0;
+    }
+
+    // Returns at once; the event is serialised and queued for each stream on the publisher thread
+    public void publish(Long productId, String eventName, Object payload) {
+        publisher.execute(() -> {
+            Set<Watcher> watchers = productStreams.get(productId);
+            boolean toEndingSoon = !endingSoonStreams.isEmpty() && isEndingSoon(productId);
+            if (watchers == null && !toEndingSoon) {
+                return;
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> event = build(eventName, payload);
+            if (watchers != null) {
+                watchers.forEach(watcher -> watcher.offer(event));
+            }
+            if (toEndingSoon) {
+                endingSoonStreams.forEach(watcher -> watcher.offer(event));
+            }
+        });
+    }
+
+    // Keeps idle connections open through proxies and flushes out clients that have gone away
+    @Scheduled(fixedRate = 25000)
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        publisher.execute(() -> {
+            productStreams.values().forEach(watchers -> watchers.forEach(watcher -> watcher.offer(ping)));
+            endingSoonStreams.forEach(watcher -> watcher.offer(ping));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdown();
+        senders.shutdown();
+    }
+
+    private void removeProductStream(Long productId, SseEmitter emitter) {
+        productStreams.computeIfPresent(productId, (id, set) -> {
+            set.removeIf(watcher -> watcher.emitter == emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // Cached state only: the publisher thread must not wait on the database
+    private boolean isEndingSoon(Long productId) {
+        OffsetDateTime cutoff = OffsetDateTime.now().plusMinutes(endingSoonWindowMinutes);
+        return snapshotService.peek(productId)
+            .map(snapshot -> "ACTIVE".equals(snapshot.getStatus()) && snapshot.getEndTime().isBefore(cutoff))
+            .orElse(false);
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> build(String eventName, Object payload) {
+        try {
+            String json = objectMapper.writeValueAsString(payload);
+            return SseEmitter.event().name(eventName).data(json, MediaType.APPLICATION_JSON).build();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize auction event", e);
+        }
+    }
+
+    // One open stream and the events not yet written to it. Only a sender thread touches the emitter, and
+    // only one drains a given stream at a time, so a blocked write never reaches the publisher.
+    private class Watcher {
+        private final SseEmitter emitter;
+        private final Runnable remove;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> outbox = new ConcurrentLinkedQueue<>();
+        // Events queued plus close requests; a drain task runs while it is above zero
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        // System.nanoTime() when the write in progress started, 0 between writes
+        private volatile long sendStartedAt;
+
+        Watcher(SseEmitter emitter, Runnable remove) {
+            this.emitter = emitter;
+            this.remove = remove;
+            Runnable ended = () -> {
+                // The emitter is already finished; nothing left to complete
+                completed.set(true);
+                closed = true;
+                remove.run();
+            };
+            emitter.onCompletion(ended);
+            emitter.onTimeout(ended);
+            emitter.onError(e -> ended.run());
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed) {
+                return;
+            }
+            long started = sendStartedAt;
+            if (pending.get() >= maxPendingEvents
+                    || (started != 0 && System.nanoTime() - started > sendTimeLimit.toNanos())) {
+                slowStreams.increment();
+                close();
+                return;
+            }
+            outbox.add(event);
+            schedule();
+        }
+
+        // The emitter is completed by the drain task, after any write in progress has returned
+        private void close() {
+            closed = true;
+            remove.run();
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<ResponseBodyEmitter.DataWithMediaType> event = outbox.poll();
+                if (event != null && !closed) {
+                    sendStartedAt = System.nanoTime();
+                    boolean sent = send(event);
+                    sendStartedAt = 0;
+                    if (!sent) {
+                        closed = true;
+                        remove.run();
+                    }
+                }
+            } while (pending.decrementAndGet() > 0);
+            if (closed && completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+
+        private boolean send(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                completed.set(true);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
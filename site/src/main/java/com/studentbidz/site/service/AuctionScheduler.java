@@ -1,5 +1,6 @@
 package com.studentbidz.site.service;
 
+import com.studentbidz.site.entity.Bid;
 import com.studentbidz.site.entity.Notification;
 import com.studentbidz.site.entity.Product;
 import com.studentbidz.site.repository.ProductRepository;
@@ -8,10 +9,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class AuctionScheduler {
@@ -25,7 +27,13 @@ public class AuctionScheduler {
     private NotificationService notificationService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private AuctionBroadcaster broadcaster;
+
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
 
     // Check every minute for auctions ending soon or ended
     @Transactional
@@ -35,32 +43,24 @@ public class AuctionScheduler {
         OffsetDateTime thirtyOneMinFromNow = now.plusMinutes(31);
         OffsetDateTime twentyNineMinFromNow = now.plusMinutes(29);
         // Find auctions ending between 29 and 31 minutes from now (to catch the 30-min mark)
-        List<Product> endingIn30Min = productRepository.findByStatusAndEndTimeBetween(
+        // that have not been warned yet; warnedAt makes the warning exactly-once per product
+        List<Product> endingIn30Min = productRepository.findByStatusAndWarnedAtIsNullAndEndTimeBetween(
             Product.Status.ACTIVE, twentyNineMinFromNow, thirtyOneMinFromNow);
         for (Product product : endingIn30Min) {
-            // Check if a 30-min notification has already been sent (by checking for a notification of this type for this product and user)
-            bidRepository.findByProduct(product).forEach(bid -> {
-                boolean alreadyNotified = notificationService.existsNotification(
-                    bid.getBidder().getUsername(),
-                    Notification.Type.AUCTION_ENDING,
-                    product.getId(),
-                    "30MIN"
-                );
-                if (!alreadyNotified) {
-                    notificationService.createNotification(
-                        bid.getBidder().getUsername(),
-                        Notification.Type.AUCTION_ENDING,
-                        "Auction ending soon!",
-                        "The auction for \"" + product.getTitle() + "\" ends in 30 minutes. Current highest bid: ₹" +
-                        bidRepository.findTopByProductOrderByAmountDesc(product)
-                            .map(b -> b.getAmount())
-                            .orElse(product.getStartingPrice()),
-                        "/product/" + product.getId(),
-                        product,
-                        "30MIN"
-                    );
-                }
-            });
+            BigDecimal highest = bidRepository.findTopByProductOrderByAmountDesc(product)
+                .map(Bid::getAmount)
+                .orElse(product.getStartingPrice());
+            notificationService.createNotifications(
+                bidRepository.findDistinctBiddersByProduct(product),
+                Notification.Type.AUCTION_ENDING,
+                "Auction ending soon!",
+                "The auction for \"" + product.getTitle() + "\" ends in 30 minutes. Current highest bid: ₹" + highest,
+                "/product/" + product.getId(),
+                product,
+                "30MIN"
+            );
+            product.setWarnedAt(now);
+            productRepository.save(product);
         }
         
         // Find auctions that have ended but are still marked as active
@@ -69,7 +69,8 @@ public class AuctionScheduler {
         
         for (Product product : endedAuctions) {
             // Find the highest bid
-            bidRepository.findTopByProductOrderByAmountDesc(product).ifPresentOrElse(
+            Optional<Bid> highest = bidRepository.findTopByProductOrderByAmountDesc(product);
+            highest.ifPresentOrElse(
                 highestBid -> {
                     // Set winner and mark as SOLD
                     product.setWinner(highestBid.getBidder());
@@ -87,9 +88,8 @@ public class AuctionScheduler {
                     );
                     
                     // Send WebSocket notification for winner declaration
-                    messagingTemplate.convertAndSend(
-                        "/topic/winner-declared/" + product.getId(),
-                        product.getWinner().getUsername()
+                    broadcaster.broadcast(product.getId(), "winner-declared",
+                        () -> product.getWinner().getUsername()
                     );
                 },
                 () -> {
@@ -98,21 +98,22 @@ public class AuctionScheduler {
                     productRepository.save(product);
                 }
             );
+            snapshotService.evict(product.getId());
+            chatWriteBehindService.evictParticipants(product.getId());
             
             // Notify all bidders that auction has ended
-            bidRepository.findByProduct(product).forEach(bid -> {
-                notificationService.createNotification(
-                    bid.getBidder().getUsername(),
-                    Notification.Type.AUCTION_ENDED,
-                    "Auction ended",
-                    "The auction for \"" + product.getTitle() + "\" has ended. Final price: ₹" + 
-                    bidRepository.findTopByProductOrderByAmountDesc(product)
-                        .map(b -> b.getAmount())
-                        .orElse(product.getStartingPrice()),
-                    "/product/" + product.getId(),
-                    product
-                );
-            });
+            BigDecimal finalPrice = highest
+                .map(Bid::getAmount)
+                .orElse(product.getStartingPrice());
+            notificationService.createNotifications(
+                bidRepository.findDistinctBiddersByProduct(product),
+                Notification.Type.AUCTION_ENDED,
+                "Auction ended",
+                "The auction for \"" + product.getTitle() + "\" has ended. Final price: ₹" + finalPrice,
+                "/product/" + product.getId(),
+                product,
+                null
+            );
         }
     }
 } 
\ No newline at end of file
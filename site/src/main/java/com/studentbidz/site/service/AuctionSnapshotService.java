@@ -0,0 +1,126 @@
+package com.studentbidz.site.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.studentbidz.site.dto.AuctionSnapshotMessage;
+import com.studentbidz.site.entity.Bid;
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.repository.BidRepository;
+import com.studentbidz.site.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// In-memory view of each auction's live state (price, leader, end time, status), capped at
+// app.snapshots.max-entries. Loaded from the primary database on first use, then kept current by the
+// bid path; any other change to a product evicts its entry so the next read reloads it. Both happen once
+// the writer's transaction commits, and drop a load still in flight, so a load that read the state from
+// before the change is never cached. Changes made on another node are not seen here, so entries expire
+// app.snapshots.ttl after they were loaded or last updated.
+@Service
+public class AuctionSnapshotService {
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    // A load in progress is a pending future, so concurrent readers of the same auction wait for it
+    private final Cache<Long, CompletableFuture<AuctionSnapshotMessage>> snapshots;
+    private final TransactionTemplate primaryRead;
+
+    public AuctionSnapshotService(PlatformTransactionManager transactionManager,
+                                  @Value("${app.snapshots.ttl:PT10S}") Duration ttl,
+                                  @Value("${app.snapshots.max-entries:10000}") long maxEntries) {
+        this.snapshots = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maxEntries)
+            .build();
+        // A new read-write transaction, so DataSourceRoutingConfig sends it to the primary even when the
+        // caller is in a read-only one
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Optional<AuctionSnapshotMessage> getSnapshot(Long productId) {
+        CompletableFuture<AuctionSnapshotMessage> loading = new CompletableFuture<>();
+        CompletableFuture<AuctionSnapshotMessage> existing = snapshots.asMap().putIfAbsent(productId, loading);
+        if (existing != null) {
+            return Optional.ofNullable(await(existing));
+        }
+        try {
+            AuctionSnapshotMessage loaded = primaryRead.execute(status -> productRepository.findById(productId).map(this::load).orElse(null));
+            if (loaded == null) {
+                snapshots.asMap().remove(productId, loading);
+            }
+            loading.complete(loaded);
+            return Optional.ofNullable(loaded);
+        } catch (RuntimeException | Error e) {
+            snapshots.asMap().remove(productId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // The cached snapshot only, never a database read; empty when it is not loaded or still loading
+    public Optional<AuctionSnapshotMessage> peek(Long productId) {
+        CompletableFuture<AuctionSnapshotMessage> future = snapshots.getIfPresent(productId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(future.join());
+    }
+
+    // Called after a bid is saved; bids can finish out of order, so only a higher amount wins
+    public void recordBid(Long productId, BigDecimal amount, String bidderUsername, OffsetDateTime endTime) {
+        AfterCommit.run(() -> snapshots.asMap().computeIfPresent(productId, (id, future) -> {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                // The load in flight may have read the price from before this bid
+                return null;
+            }
+            AuctionSnapshotMessage current = future.join();
+            if (current.getCurrentPrice() != null && current.getCurrentPrice().compareTo(amount) >= 0) {
+                return future;
+            }
+            OffsetDateTime latestEnd = current.getEndTime() != null && current.getEndTime().isAfter(endTime)
+                ? current.getEndTime() : endTime;
+            return CompletableFuture.completedFuture(new AuctionSnapshotMessage(id, amount, bidderUsername, latestEnd, current.getStatus()));
+        }));
+    }
+
+    public void evict(Long productId) {
+        AfterCommit.run(() -> snapshots.invalidate(productId));
+    }
+
+    private AuctionSnapshotMessage load(Product product) {
+        Optional<Bid> highest = bidRepository.findTopByProductOrderByAmountDesc(product);
+        return new AuctionSnapshotMessage(
+            product.getId(),
+            highest.map(Bid::getAmount).orElse(product.getStartingPrice()),
+            highest.map(bid -> bid.getBidder().getUsername()).orElse(null),
+            product.getEndTime(),
+            product.getStatus().name()
+        );
+    }
+
+    private static AuctionSnapshotMessage await(CompletableFuture<AuctionSnapshotMessage> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
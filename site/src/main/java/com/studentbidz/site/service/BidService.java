@@ -1,8 +1,11 @@
 package com.studentbidz.site.service;
 
+import com.studentbidz.site.dto.AuctionTimeUpdateMessage;
 import com.studentbidz.site.dto.BidRequest;
 import com.studentbidz.site.dto.BidResponse;
 import com.studentbidz.site.dto.BidUpdateMessage;
+import com.studentbidz.site.dto.ProxyBidRequest;
+import com.studentbidz.site.dto.ProxyBidResponse;
 import com.studentbidz.site.entity.Bid;
 import com.studentbidz.site.entity.Notification;
 import com.studentbidz.site.entity.Product;
@@ -10,15 +13,23 @@ import com.studentbidz.site.entity.User;
 import com.studentbidz.site.repository.BidRepository;
 import com.studentbidz.site.repository.ProductRepository;
 import com.studentbidz.site.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,112 +41,146 @@ public class BidService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private AuctionBroadcaster broadcaster;
     @Autowired
     private ProductService productService;
     @Autowired
     private NotificationService notificationService;
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private RestrictedBidderIndex restrictedBidderIndex;
+    @Autowired
+    private ProxyBidService proxyBidService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
+    @Value("${app.bids.max-attempts:5}")
+    private int maxAttempts;
+
+    private final Counter placementConflicts;
+    private final Counter placementsExhausted;
+    private final DistributionSummary placementAttempts;
+
+    public BidService(MeterRegistry meterRegistry) {
+        this.placementConflicts = Counter.builder("bids.placement.conflicts")
+            .description("Bid attempts that lost the compare-and-set on the product price and were retried")
+            .register(meterRegistry);
+        this.placementsExhausted = Counter.builder("bids.placement.exhausted")
+            .description("Bids rejected with 409 after losing the compare-and-set on every attempt")
+            .register(meterRegistry);
+        this.placementAttempts = DistributionSummary.builder("bids.placement.attempts")
+            .description("place_bid calls needed to reach a decision")
+            .register(meterRegistry);
+    }
+
+    // All bid rules and the insert run in the place_bid database function (db/migration/V6) in one
+    // round trip. It accepts with a compare-and-set on products.current_price instead of a row lock;
+    // when another bid wins the race it returns CONFLICT and the bid is re-evaluated against the new
+    // price, up to maxAttempts times. The transaction covers only place_bid and the proxies' answer to it,
+    // because the compare-and-set UPDATE keeps the product row locked until commit; notifications,
+    // broadcasts and the response are built once it has committed.
     public BidResponse placeBid(Long productId, BidRequest request, String username) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
         User bidder = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
-        if (product.getEndTime().isBefore(OffsetDateTime.now())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Auction has ended");
-        }
-        
-        // Get current highest bid
-        BigDecimal highest = bidRepository.findTopByProductOrderByAmountDesc(product)
-                .map(Bid::getAmount)
-                .orElse(product.getStartingPrice());
-        
-        // 1. Bid Frequency Limiting: No more than 1 bid per 1 minute per product
-        Bid lastUserBid = bidRepository.findTopByProductAndBidderOrderByTimestampDesc(product, bidder).orElse(null);
-        if (lastUserBid != null && lastUserBid.getTimestamp().isAfter(OffsetDateTime.now().minusMinutes(1))) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You can only bid once every 1 minute on this product.");
-        }
-
-        // Restrict functionality: Check if user is restricted from bidding on this product
-        if (product.getRestrictedBidders() != null && product.getRestrictedBidders().stream().anyMatch(u -> u.getId().equals(bidder.getId()))) {
+        // Restricted bidders are turned away from memory; place_bid repeats the check against the join
+        // table, which also covers restrictions made on another node
+        if (restrictedBidderIndex.isRestricted(productId, bidder.getId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are restricted from bidding on this product by the seller.");
         }
+        PriceChange change = transactionTemplate.execute(status -> {
+            PlacedBid placed = placeWithRetry(productId, bidder.getId(), request.getAmount());
+            rejectUnlessAccepted(placed);
 
-        // 2. Maximum Bid Increment: No more than 2x the current highest bid
-        BigDecimal maxAllowed = highest.multiply(BigDecimal.valueOf(2));
-        if (request.getAmount().compareTo(maxAllowed) > 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid cannot be more than 2x the current highest bid.");
-        }
+            // Registered maximums answer the new price in the same transaction, and only where that ends
+            // up is broadcast
+            PriceChange placedChange = new PriceChange(placed, request.getAmount(), bidder.getUsername());
+            ProxyBidService.AutoBid auto = proxyBidService.resolve(productId, request.getAmount(), bidder.getId());
+            if (auto != null) {
+                PlacedBid autoPlaced = callPlaceBid(productId, auto.getBidderId(), auto.getAmount(), true, false);
+                if ("ACCEPTED".equals(autoPlaced.outcome)) {
+                    placedChange.accepted.add(autoPlaced);
+                    placedChange.price = auto.getAmount();
+                    placedChange.leader = usernameOf(auto.getBidderId());
+                }
+            }
+            return placedChange;
+        });
+        publishPrice(productId, change);
 
-        // 3. Minimum Bid Increment: At least ₹1 more than current highest bid
-        if (request.getAmount().subtract(highest).compareTo(BigDecimal.valueOf(1)) < 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid must be at least ₹1 higher than the current highest bid.");
-        }
+        PlacedBid placed = change.accepted.get(0);
+        return transactionTemplate.execute(status -> {
+            BidResponse resp = new BidResponse();
+            resp.setId(placed.bidId);
+            resp.setAmount(request.getAmount());
+            resp.setTimestamp(placed.placedAt);
+            resp.setBidderUsername(bidder.getUsername());
+            resp.setBidderId(bidder.getId());
+            resp.setProduct(productService.toResponse(productRepository.getReferenceById(productId)));
+            return resp;
+        });
+    }
 
-        // 4. Daily/Session Bid Limits: Max 50 bids per day, 20 per product per day
-        OffsetDateTime since = OffsetDateTime.now().minusDays(1);
-        long dailyCount = bidRepository.countByBidderSince(bidder, since);
-        long productDailyCount = bidRepository.countByBidderAndProductSince(bidder, product, since);
-        if (dailyCount >= 50) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You have reached your daily bid limit (50).");
+    // Registers or changes the caller's hidden maximum and lets it act on the current price straight away.
+    // As with placeBid, an automatic bid it triggers is published after the transaction commits. When that
+    // bid is the caller's and breaks the frequency or daily limits, the new maximum is rolled back with it.
+    public ProxyBidResponse setProxyBid(Long productId, ProxyBidRequest request, String username) {
+        User bidder = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+        if (request.getMaxAmount() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum bid is required");
         }
-        if (productDailyCount >= 20) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You have reached your daily bid limit (20) for this product.");
+        if (restrictedBidderIndex.isRestricted(productId, bidder.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are restricted from bidding on this product by the seller.");
         }
-        
-        if (request.getAmount().compareTo(highest) <= 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid must be higher than current highest bid");
+        PriceState state = transactionTemplate.execute(status -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+            if (product.getStatus() != Product.Status.ACTIVE || product.getEndTime().isBefore(OffsetDateTime.now())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Auction has ended");
+            }
+            PriceState current = currentState(productId);
+            // The leader may lower their maximum down to their own bid; anyone else has to be able to outbid
+            BigDecimal minimum = bidder.getId().equals(current.leaderId) ? current.price : current.price.add(BigDecimal.ONE);
+            if (request.getMaxAmount().compareTo(minimum) < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum bid must be at least ₹" + minimum + ".");
+            }
+            proxyBidService.register(product, bidder, request.getMaxAmount());
+            return resolveProxies(productId, current, bidder.getId());
+        });
+        if (state.change != null) {
+            publishPrice(productId, state.change);
         }
-        
-        // Get the previous highest bidder to notify them
-        String previousHighestBidder = null;
-        if (highest.compareTo(product.getStartingPrice()) > 0) {
-            previousHighestBidder = bidRepository.findTopByProductOrderByAmountDesc(product)
-                .map(bid -> bid.getBidder().getUsername())
+        return new ProxyBidResponse(productId, request.getMaxAmount(), state.price, bidder.getId().equals(state.leaderId));
+    }
+
+    @Transactional(readOnly = true)
+    public ProxyBidResponse getProxyBid(Long productId, String username) {
+        User bidder = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+        return proxyBidService.find(productId, bidder.getId())
+                .map(proxy -> {
+                    PriceState state = currentState(productId);
+                    return new ProxyBidResponse(productId, proxy.getMaxAmount(), state.price, bidder.getId().equals(state.leaderId));
+                })
                 .orElse(null);
+    }
+
+    // Bids the engine already placed stay; it just stops bidding for the caller
+    @Transactional
+    public void cancelProxyBid(Long productId, String username) {
+        User bidder = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+        if (!proxyBidService.cancel(productId, bidder.getId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No maximum bid on this product");
         }
-        
-        // Remove previous bid by this user for this product (re-bid logic)
-        bidRepository.findByProductAndBidder(product, bidder).ifPresent(bidRepository::delete);
-        
-        // Save new bid
-        Bid bid = new Bid();
-        bid.setAmount(request.getAmount());
-        bid.setTimestamp(OffsetDateTime.now());
-        bid.setProduct(product);
-        bid.setBidder(bidder);
-        Bid saved = bidRepository.save(bid);
-
-        // Auction auto-extend: if bid placed in last minute, extend by 2 minutes
-        OffsetDateTime now = OffsetDateTime.now();
-        if (product.getEndTime().isAfter(now) && product.getEndTime().isBefore(now.plusMinutes(1))) {
-            product.setEndTime(product.getEndTime().plusMinutes(2));
-            productRepository.save(product);
-            // Broadcast new end time
-            messagingTemplate.convertAndSend(
-                "/topic/auction-time-update/" + productId,
-                new com.studentbidz.site.dto.AuctionTimeUpdateMessage(productId, product.getEndTime(), null, product.getSeller().getUsername())
-            );
-        }
-        
-        // Create outbid notification for previous highest bidder
-        if (previousHighestBidder != null && !previousHighestBidder.equals(username)) {
-            notificationService.createNotification(
-                previousHighestBidder,
-                Notification.Type.OUTBID,
-                "You've been outbid!",
-                username + " has outbid you on \"" + product.getTitle() + "\" with ₹" + request.getAmount(),
-                "/product/" + productId,
-                product
-            );
-        }
-        
-        // Broadcast bid update
-        BidUpdateMessage update = new BidUpdateMessage(productId, saved.getAmount(), bidder.getUsername(), saved.getTimestamp());
-        messagingTemplate.convertAndSend("/topic/bids/" + productId, update);
-        return toResponse(saved);
     }
 
+    @Transactional(readOnly = true)
     public BidResponse getHighestBidForProduct(Long productId, String username) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
@@ -147,29 +192,32 @@ public class BidService {
                 .orElse(null);
     }
 
+    @Transactional(readOnly = true)
     public List<BidResponse> getBidsByUser(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
-        return bidRepository.findByBidder(user).stream()
+        return bidRepository.findCurrentByBidder(user).stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<BidResponse> getBiddersWithAmountsForProduct(Long productId, String sellerUsername) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
         if (!product.getSeller().getUsername().equals(sellerUsername)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the seller can view bidders");
         }
-        return bidRepository.findByProduct(product).stream()
+        return bidRepository.findCurrentByProduct(product).stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<BidResponse> getBidsForProduct(Long productId) {
         Product product = productRepository.findById(productId)
             .orElseThrow(() -> new RuntimeException("Product not found"));
-        return bidRepository.findByProduct(product).stream()
+        return bidRepository.findCurrentByProduct(product).stream()
             .map(this::toResponse)
             .collect(Collectors.toList());
     }
@@ -188,6 +236,8 @@ public class BidService {
         product.setWinner(winner);
         product.setStatus(Product.Status.SOLD);
         productRepository.save(product);
+        snapshotService.evict(productId);
+        chatWriteBehindService.evictParticipants(productId);
         
         // Create winner notification
         notificationService.createNotification(
@@ -200,15 +250,22 @@ public class BidService {
         );
     }
 
+    @Transactional
     public void deleteBid(Long bidId, String username) {
         Bid bid = bidRepository.findById(bidId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid not found"));
         if (!bid.getBidder().getUsername().equals(username)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to delete this bid");
         }
-        Product product = bid.getProduct();
+        // Locked before the bids go, so no bid is accepted between the delete and the price refresh
+        Product product = productRepository.findByIdForUpdate(bid.getProduct().getId())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
         boolean wasWinner = product.getWinner() != null && product.getWinner().getId().equals(bid.getBidder().getId());
-        bidRepository.delete(bid);
+        // Withdrawing removes the bidder's whole history on the product, so no older bid becomes current
+        bidRepository.deleteByProductAndBidder(product, bid.getBidder());
+        productRepository.refreshCurrentPrice(product.getId());
+        snapshotService.evict(product.getId());
+        chatWriteBehindService.evictParticipants(product.getId());
         if (wasWinner) {
             product.setWinner(null);
             product.setStatus(Product.Status.ENDED);
@@ -225,6 +282,189 @@ public class BidService {
         }
     }
 
+    private void rejectUnlessAccepted(PlacedBid placed) {
+        switch (placed.outcome) {
+            case "ACCEPTED":
+                break;
+            case "NOT_FOUND":
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+            case "ENDED":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Auction has ended");
+            case "TOO_FREQUENT":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You can only bid once every 1 minute on this product.");
+            case "RESTRICTED":
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are restricted from bidding on this product by the seller.");
+            case "TOO_HIGH":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid cannot be more than 2x the current highest bid.");
+            case "TOO_LOW":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid must be at least ₹1 higher than the current highest bid.");
+            case "DAILY_LIMIT":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You have reached your daily bid limit (50).");
+            case "PRODUCT_DAILY_LIMIT":
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You have reached your daily bid limit (20) for this product.");
+            case "CONFLICT":
+                placementsExhausted.increment();
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "The price changed while your bid was being placed. Please try again.");
+            default:
+                throw new IllegalStateException("Unknown place_bid outcome " + placed.outcome);
+        }
+    }
+
+    private PlacedBid placeWithRetry(Long productId, Long bidderId, BigDecimal amount) {
+        PlacedBid placed = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            placed = callPlaceBid(productId, bidderId, amount, false, true);
+            if (!"CONFLICT".equals(placed.outcome)) {
+                placementAttempts.record(attempt);
+                return placed;
+            }
+            placementConflicts.increment();
+        }
+        return placed;
+    }
+
+    // rateLimited: held to, and counted against, the frequency and daily limits (db/migration/V9)
+    private PlacedBid callPlaceBid(Long productId, Long bidderId, BigDecimal amount, boolean auto, boolean rateLimited) {
+        return jdbcTemplate.queryForObject(
+            "SELECT * FROM place_bid(?, ?, ?, ?, ?)",
+            (rs, rowNum) -> {
+                PlacedBid result = new PlacedBid();
+                result.outcome = rs.getString("outcome");
+                result.bidId = rs.getLong("bid_id");
+                result.placedAt = rs.getObject("placed_at", OffsetDateTime.class);
+                result.endsAt = rs.getObject("ends_at", OffsetDateTime.class);
+                result.extended = rs.getBoolean("extended");
+                result.outbidUsername = rs.getString("outbid_username");
+                result.productTitle = rs.getString("product_title");
+                result.sellerUsername = rs.getString("seller_username");
+                return result;
+            },
+            productId, bidderId, amount, auto, rateLimited);
+    }
+
+    // Places the automatic bid the proxies make against state, returning the state with the change to
+    // publish. A bid that wins the compare-and-set first changes the price under us, so the proxies are
+    // resolved again against the new one. A bid for registrantId, who just set their maximum, is their own
+    // move rather than an answer to someone else's, so it is held to the manual bid limits and a rejection
+    // is theirs to see.
+    private PriceState resolveProxies(Long productId, PriceState state, Long registrantId) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            ProxyBidService.AutoBid auto = proxyBidService.resolve(productId, state.price, state.leaderId);
+            if (auto == null) {
+                return state;
+            }
+            boolean ownMove = auto.getBidderId().equals(registrantId);
+            PlacedBid placed = callPlaceBid(productId, auto.getBidderId(), auto.getAmount(), true, ownMove);
+            if ("ACCEPTED".equals(placed.outcome)) {
+                PriceState resolved = new PriceState(auto.getAmount(), auto.getBidderId());
+                resolved.change = new PriceChange(placed, auto.getAmount(), usernameOf(auto.getBidderId()));
+                return resolved;
+            }
+            if (!"CONFLICT".equals(placed.outcome)) {
+                if (ownMove) {
+                    rejectUnlessAccepted(placed);
+                }
+                return state;
+            }
+            placementConflicts.increment();
+            state = currentState(productId);
+        }
+        return state;
+    }
+
+    // Side effects of a committed price change made of one or more accepted bids: a single broadcast of the
+    // final price and leader, and one outbid notification for everyone who lost the lead along the way
+    private void publishPrice(Long productId, PriceChange change) {
+        List<PlacedBid> accepted = change.accepted;
+        BigDecimal price = change.price;
+        String leader = change.leader;
+        PlacedBid last = accepted.get(accepted.size() - 1);
+        if (accepted.stream().anyMatch(p -> p.extended)) {
+            // Broadcast new end time
+            broadcaster.broadcast(productId, "auction-time-update",
+                () -> new AuctionTimeUpdateMessage(productId, last.endsAt, null, last.sellerUsername)
+            );
+        }
+
+        snapshotService.recordBid(productId, price, leader, last.endsAt);
+
+        List<String> outbid = accepted.stream()
+            .map(p -> p.outbidUsername)
+            .filter(Objects::nonNull)
+            .filter(username -> !username.equals(leader))
+            .distinct()
+            .collect(Collectors.toList());
+        if (!outbid.isEmpty()) {
+            // One short transaction for all of them
+            transactionTemplate.executeWithoutResult(status -> {
+                Product product = productRepository.getReferenceById(productId);
+                outbid.forEach(username -> notificationService.createNotification(
+                    username,
+                    Notification.Type.OUTBID,
+                    "You've been outbid!",
+                    leader + " has outbid you on \"" + last.productTitle + "\" with ₹" + price,
+                    "/product/" + productId,
+                    product
+                ));
+            });
+        }
+
+        // Broadcast bid update
+        broadcaster.broadcast(productId, "bids",
+            () -> new BidUpdateMessage(productId, price, leader, last.placedAt));
+    }
+
+    // The price and leader as committed right now; the Product entity may be older than that
+    private PriceState currentState(Long productId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT coalesce(p.current_price, p.starting_price) AS price, "
+                + "(SELECT b.bidder_id FROM bids b WHERE b.product_id = p.id ORDER BY b.amount DESC LIMIT 1) AS leader_id "
+                + "FROM products p WHERE p.id = ?",
+            (rs, rowNum) -> new PriceState(rs.getBigDecimal("price"), rs.getObject("leader_id", Long.class)),
+            productId);
+    }
+
+    private String usernameOf(Long userId) {
+        return userRepository.findById(userId).map(User::getUsername).orElse(null);
+    }
+
+    private static class PriceState {
+        final BigDecimal price;
+        final Long leaderId;
+        // What resolveProxies placed, if anything, for the caller to publish once committed
+        PriceChange change;
+
+        PriceState(BigDecimal price, Long leaderId) {
+            this.price = price;
+            this.leaderId = leaderId;
+        }
+    }
+
+    // Accepted bids that moved the price in one transaction, and where the price and lead ended up
+    private static class PriceChange {
+        final List<PlacedBid> accepted = new ArrayList<>();
+        BigDecimal price;
+        String leader;
+
+        PriceChange(PlacedBid placed, BigDecimal price, String leader) {
+            this.accepted.add(placed);
+            this.price = price;
+            this.leader = leader;
+        }
+    }
+
+    // One row returned by place_bid
+    private static class PlacedBid {
+        String outcome;
+        long bidId;
+        OffsetDateTime placedAt;
+        OffsetDateTime endsAt;
+        boolean extended;
+        String outbidUsername;
+        String productTitle;
+        String sellerUsername;
+    }
+
     private BidResponse toResponse(Bid bid) {
         BidResponse resp = new BidResponse();
         resp.setId(bid.getId());
@@ -232,6 +472,7 @@ public class BidService {
         resp.setTimestamp(bid.getTimestamp());
         resp.setBidderUsername(bid.getBidder().getUsername());
         resp.setBidderId(bid.getBidder().getId());
+        resp.setAuto(bid.isAuto());
         resp.setProduct(productService.toResponse(bid.getProduct()));
         return resp;
     }
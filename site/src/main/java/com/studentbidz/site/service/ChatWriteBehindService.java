@@ -0,0 +1,367 @@
+package com.studentbidz.site.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.studentbidz.site.dto.ChatAckMessage;
+import com.studentbidz.site.dto.MessageResponse;
+import com.studentbidz.site.entity.Notification;
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.repository.ConversationStateRepository;
+import com.studentbidz.site.repository.ProductRepository;
+import com.studentbidz.site.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Write-behind path for STOMP chat: messages get their id from a block reserved ahead of time, are broadcast
+// straight away and are inserted in JDBC batches by a background flush. The sender receives an ack on
+// /user/queue/chat-acks once the row is committed. When the queue is full the message is written
+// synchronously through MessageService instead.
+// A batch that fails is retried one message at a time; a message that still fails goes back on the queue
+// for a later flush, up to app.chat.write-behind.max-attempts in all. After that it is given up on: the
+// sender gets an ack with persisted=false and chat.messages.failed counts it.
+// Who may chat about a product is cached for app.chat.write-behind.participants-ttl, which bounds how long
+// another node's change of winner can go unnoticed here.
+@Service
+public class ChatWriteBehindService {
+    private static final Logger log = LoggerFactory.getLogger(ChatWriteBehindService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ConversationStateRepository conversationStateRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.chat.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.id-block-size:100}")
+    private int idBlockSize;
+
+    @Value("${app.chat.write-behind.max-attempts:3}")
+    private int maxAttempts;
+
+    private final BlockingQueue<PendingMessage> queue;
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+    // The block after reservedIds, fetched ahead outside the lock; null when none is being fetched. Guarded by reservedIds.
+    private CompletableFuture<List<Long>> nextIds;
+    private final Cache<Long, Participants> participants;
+    private final Counter failed;
+
+    public ChatWriteBehindService(MeterRegistry meterRegistry,
+                                  @Value("${app.chat.write-behind.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.chat.write-behind.participants-ttl:PT30S}") Duration participantsTtl,
+                                  @Value("${app.chat.write-behind.participants-max-entries:10000}") long participantsMaxEntries) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.participants = Caffeine.newBuilder()
+            .expireAfterWrite(participantsTtl)
+            .maximumSize(participantsMaxEntries)
+            .build();
+        this.failed = Counter.builder("chat.messages.failed")
+            .description("Write-behind chat messages that could not be persisted")
+            .register(meterRegistry);
+    }
+
+    public MessageResponse send(Long productId, String senderUsername, String content, String clientMessageId) {
+        // Reject here what the insert would reject, so one bad message cannot fail a whole batch
+        if (content == null || content.isBlank() || content.length() > 1000) {
+            throw new RuntimeException("Message must be between 1 and 1000 characters");
+        }
+        Participants chat = participants.getIfPresent(productId);
+        if (chat == null) {
+            // Loaded outside the cache so a slow query does not hold up other products
+            chat = loadParticipants(productId);
+            participants.put(productId, chat);
+        }
+        Long receiverId;
+        String receiverUsername;
+        if (chat.sellerUsername.equals(senderUsername)) {
+            receiverId = chat.winnerId;
+            receiverUsername = chat.winnerUsername;
+        } else if (senderUsername.equals(chat.winnerUsername)) {
+            receiverId = chat.sellerId;
+            receiverUsername = chat.sellerUsername;
+        } else {
+            throw new RuntimeException("Not authorized to send message");
+        }
+        if (receiverId == null) {
+            throw new RuntimeException("Not authorized to send message");
+        }
+        Long senderId = chat.sellerUsername.equals(senderUsername) ? chat.sellerId : chat.winnerId;
+
+        PendingMessage pending;
+        CompletableFuture<List<Long>> fetch;
+        for (;;) {
+            CompletableFuture<List<Long>> waitFor;
+            fetch = null;
+            // Ids and timestamps are handed out together so (createdAt, id) order matches the sequence. Timestamps
+            // are cut to the column's precision, so the broadcast copy works as a paging cursor.
+            synchronized (reservedIds) {
+                if (reservedIds.isEmpty() && nextIds != null && nextIds.isDone()) {
+                    reservedIds.addAll(nextIds.join());
+                    nextIds = null;
+                }
+                // The next block is fetched once half of this one is used, so it is normally ready in time
+                if (nextIds == null && reservedIds.size() <= idBlockSize / 2) {
+                    nextIds = fetch = new CompletableFuture<>();
+                }
+                if (!reservedIds.isEmpty()) {
+                    pending = new PendingMessage(reservedIds.poll(), productId, chat.title, senderId, senderUsername,
+                        receiverId, receiverUsername, content, OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS), clientMessageId);
+                    if (!queue.offer(pending)) {
+                        pending = null;
+                    }
+                    break;
+                }
+                waitFor = nextIds;
+            }
+            // Out of ids: wait for the next block outside the lock, like everyone else who runs out
+            if (fetch != null) {
+                reserveIds(fetch);
+            }
+            awaitIds(waitFor);
+        }
+        if (fetch != null) {
+            reserveIds(fetch);
+        }
+        if (pending == null) {
+            // Queue is full: the database is behind, so write this one synchronously
+            MessageResponse saved = messageService.saveMessage(productId, senderUsername, content);
+            messagingTemplate.convertAndSendToUser(senderUsername, "/queue/chat-acks",
+                new ChatAckMessage(productId, saved.getId(), clientMessageId, true));
+            return saved;
+        }
+        return new MessageResponse(pending.id, content, senderUsername, receiverUsername, pending.createdAt);
+    }
+
+    // Seller or winner changed; the next message after the commit reloads who may chat
+    public void evictParticipants(Long productId) {
+        AfterCommit.run(() -> participants.invalidate(productId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        List<PendingMessage> retries = new ArrayList<>();
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch, retries);
+            batch.clear();
+        }
+        // Requeued only now, so they wait for the next flush instead of being retried straight away
+        for (PendingMessage m : retries) {
+            if (!queue.offer(m)) {
+                giveUp(m, null);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!queue.isEmpty()) {
+            log.error("Shutting down with {} chat messages not persisted", queue.size());
+        }
+    }
+
+    private void write(List<PendingMessage> batch, List<PendingMessage> retries) {
+        try {
+            persist(batch);
+            batch.forEach(m -> ack(m, true));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist chat batch of {} messages, retrying them one at a time", batch.size(), e);
+        }
+        for (PendingMessage m : batch) {
+            try {
+                persist(List.of(m));
+                ack(m, true);
+            } catch (RuntimeException e) {
+                m.attempts++;
+                if (m.attempts < maxAttempts) {
+                    log.warn("Failed to persist chat message {} (attempt {} of {})", m.id, m.attempts, maxAttempts, e);
+                    retries.add(m);
+                } else {
+                    giveUp(m, e);
+                }
+            }
+        }
+    }
+
+    private void giveUp(PendingMessage m, Exception cause) {
+        log.error("Giving up on chat message {} for product {} after {} attempts", m.id, m.productId, m.attempts, cause);
+        failed.increment();
+        ack(m, false);
+    }
+
+    private void ack(PendingMessage m, boolean persisted) {
+        messagingTemplate.convertAndSendToUser(m.senderUsername, "/queue/chat-acks",
+            new ChatAckMessage(m.productId, m.id, m.clientMessageId, persisted));
+    }
+
+    private void persist(List<PendingMessage> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO messages (id, product_id, sender_id, receiver_id, content, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                batch, batch.size(), (ps, m) -> {
+                    ps.setLong(1, m.id);
+                    ps.setLong(2, m.productId);
+                    ps.setLong(3, m.senderId);
+                    ps.setLong(4, m.receiverId);
+                    ps.setString(5, m.content);
+                    ps.setTimestamp(6, Timestamp.from(m.createdAt.toInstant()));
+                });
+            // One unread-counter update and one notification per conversation rather than per message
+            Map<List<Long>, List<PendingMessage>> conversations = new LinkedHashMap<>();
+            for (PendingMessage m : batch) {
+                conversations.computeIfAbsent(List.of(m.productId, m.receiverId), key -> new ArrayList<>()).add(m);
+            }
+            List<Notification> notifications = new ArrayList<>(conversations.size());
+            conversations.forEach((key, messages) -> {
+                conversationStateRepository.incrementUnread(key.get(0), key.get(1), messages.stream().map(m -> m.id).toList());
+                notifications.add(notification(messages));
+            });
+            notificationService.createNotifications(notifications);
+        });
+    }
+
+    // The latest message of the conversation in this batch, and how many more came with it
+    private Notification notification(List<PendingMessage> messages) {
+        PendingMessage latest = messages.get(messages.size() - 1);
+        String preview = latest.content.substring(0, Math.min(latest.content.length(), 50)) + (latest.content.length() > 50 ? "..." : "");
+        Notification notification = new Notification();
+        notification.setUser(userRepository.getReferenceById(latest.receiverId));
+        notification.setType(Notification.Type.CHAT_MESSAGE);
+        notification.setTitle(messages.size() == 1
+            ? "New message from " + latest.senderUsername
+            : messages.size() + " new messages from " + latest.senderUsername);
+        notification.setMessage("You have a new message about \"" + latest.productTitle + "\": " + preview);
+        notification.setRelatedUrl("/chat/" + latest.productId);
+        notification.setProduct(productRepository.getReferenceById(latest.productId));
+        return notification;
+    }
+
+    // Runs outside the lock. A failed fetch is forgotten so the next sender starts another; only senders
+    // waiting on it fail, through awaitIds.
+    private void reserveIds(CompletableFuture<List<Long>> block) {
+        try {
+            block.complete(jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)",
+                Long.class, idBlockSize));
+        } catch (RuntimeException | Error e) {
+            synchronized (reservedIds) {
+                if (nextIds == block) {
+                    nextIds = null;
+                }
+            }
+            log.warn("Failed to reserve chat message ids", e);
+            block.completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private static void awaitIds(CompletableFuture<List<Long>> block) {
+        try {
+            block.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Participants loadParticipants(Long productId) {
+        return transactionTemplate.execute(status -> new Participants(productRepository.findById(productId)
+            .orElseThrow(() -> new RuntimeException("Product not found"))));
+    }
+
+    private static class Participants {
+        private final String title;
+        private final Long sellerId;
+        private final String sellerUsername;
+        private final Long winnerId;
+        private final String winnerUsername;
+
+        Participants(Product product) {
+            this.title = product.getTitle();
+            this.sellerId = product.getSeller().getId();
+            this.sellerUsername = product.getSeller().getUsername();
+            this.winnerId = product.getWinner() != null ? product.getWinner().getId() : null;
+            this.winnerUsername = product.getWinner() != null ? product.getWinner().getUsername() : null;
+        }
+    }
+
+    private static class PendingMessage {
+        private final Long id;
+        private final Long productId;
+        private final String productTitle;
+        private final Long senderId;
+        private final String senderUsername;
+        private final Long receiverId;
+        private final String receiverUsername;
+        private final String content;
+        private final OffsetDateTime createdAt;
+        private final String clientMessageId;
+        // Failed writes so far; only the flush thread touches it
+        private int attempts;
+
+        PendingMessage(Long id, Long productId, String productTitle, Long senderId, String senderUsername,
+                       Long receiverId, String receiverUsername, String content, OffsetDateTime createdAt,
+                       String clientMessageId) {
+            this.id = id;
+            this.productId = productId;
+            this.productTitle = productTitle;
+            this.senderId = senderId;
+            this.senderUsername = senderUsername;
+            this.receiverId = receiverId;
+            this.receiverUsername = receiverUsername;
+            this.content = content;
+            this.createdAt = createdAt;
+            this.clientMessageId = clientMessageId;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.studentbidz.site.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Results of recent requests sent with an Idempotency-Key header, so that a client retrying a request
+// whose answer it never received gets that answer back instead of running the request again. Keys are
+// scoped to the user and the endpoint, kept for app.idempotency.ttl and capped at
+// app.idempotency.max-entries. A retry that arrives while the original is still running waits for it, for up
+// to app.idempotency.wait-timeout; after that it gets 409 and can retry later.
+// Only successes are kept: after a failure the key is released, so the next retry runs afresh.
+@Service
+public class IdempotencyStore {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> entries;
+    private final Duration waitTimeout;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter mismatched;
+
+    // fingerprint identifies the request body, so that a key reused for a different request is refused
+    private static class Entry {
+        final String fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${app.idempotency.ttl:PT1H}") Duration ttl,
+                            @Value("${app.idempotency.max-entries:20000}") long maxEntries,
+                            @Value("${app.idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+        this.entries = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maxEntries)
+            .build();
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.mismatched = counter(meterRegistry, "mismatched");
+    }
+
+    // Runs action once per key; repeats of the same request get the stored result with REPLAYED_HEADER set.
+    // Without a key the action simply runs.
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String key, String username, String scope, String fingerprint, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return ResponseEntity.ok(action.get());
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = username + "\n" + scope + "\n" + key;
+        Entry entry = new Entry(fingerprint);
+        Entry existing = entries.asMap().putIfAbsent(cacheKey, entry);
+        if (existing != null) {
+            if (!Objects.equals(existing.fingerprint, fingerprint)) {
+                mismatched.increment();
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+            }
+            replayed.increment();
+            return ResponseEntity.ok().header(REPLAYED_HEADER, "true").body((T) await(existing));
+        }
+
+        executed.increment();
+        try {
+            T result = action.get();
+            entry.result.complete(result);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(cacheKey, entry);
+            // Retries already waiting on this attempt fail the same way
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw stillRunning();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw stillRunning();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ResponseStatusException stillRunning() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed. Please try again shortly.");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("idempotency.requests")
+            .description("Requests sent with an Idempotency-Key, by what happened to them")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
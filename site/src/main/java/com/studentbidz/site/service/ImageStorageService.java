@@ -0,0 +1,371 @@
+package com.studentbidz.site.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Content-addressed image store. Uploads are keyed by the SHA-256 of their bytes, so identical photos are
+// stored once, and live under uploads/objects/{hash}/ next to their JPEG variants. Variants are generated
+// on a small background pool; until they exist the original is served in their place.
+// The format is taken from the uploaded bytes, never from the client's filename or Content-Type, and only
+// JPEG, PNG, GIF and WebP are kept. Dimensions are read from the header before anything is decoded, and
+// images over app.images.max-pixels are refused.
+@Service
+public class ImageStorageService {
+    private static final Logger log = LoggerFactory.getLogger(ImageStorageService.class);
+
+    // Longest edge in pixels for each variant
+    public static final Map<String, Integer> VARIANTS = Map.of("card", 400, "detail", 1200, "full", 2048);
+
+    private static final Pattern URL_PATTERN = Pattern.compile("^/images/([0-9a-f]{64})/([a-z]+)$");
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // Enough leading bytes to tell the accepted formats apart
+    private static final int SNIFF_LENGTH = 12;
+
+    private final Path objectsDir;
+    private final float jpegQuality;
+    private final DataSize maxSize;
+    private final long maxPixels;
+    private final ExecutorService variantExecutor;
+
+    public ImageStorageService(@Value("${app.images.dir:uploads}") String imagesDir,
+                               @Value("${app.images.jpeg-quality:0.8}") float jpegQuality,
+                               @Value("${app.images.variant-threads:2}") int variantThreads,
+                               @Value("${app.images.max-size:10MB}") DataSize maxSize,
+                               @Value("${app.images.max-pixels:40000000}") long maxPixels) {
+        this.objectsDir = Paths.get(imagesDir, "objects");
+        this.jpegQuality = jpegQuality;
+        this.maxSize = maxSize;
+        this.maxPixels = maxPixels;
+        this.variantExecutor = Executors.newFixedThreadPool(variantThreads, r -> {
+            Thread t = new Thread(r, "image-variants");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Stores the upload and returns its public URL (the "full" variant)
+    public String store(MultipartFile image) {
+        try (InputStream in = image.getInputStream()) {
+            return store(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save image", e);
+        }
+    }
+
+    // Streams the body to disk, hashing as it writes and aborting once maxSize is exceeded
+    public String store(InputStream body) {
+        Path temp = null;
+        try {
+            Files.createDirectories(objectsDir);
+            temp = Files.createTempFile(objectsDir, "upload-", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] header = new byte[SNIFF_LENGTH];
+            int headerLength = 0;
+            try (InputStream in = new DigestInputStream(body, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                    if (total > maxSize.toBytes()) {
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Image is larger than " + maxSize.toMegabytes() + "MB");
+                    }
+                    if (headerLength < SNIFF_LENGTH) {
+                        int copied = Math.min(read, SNIFF_LENGTH - headerLength);
+                        System.arraycopy(buffer, 0, header, headerLength, copied);
+                        headerLength += copied;
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            String extension = sniffExtension(Arrays.copyOf(header, headerLength));
+            if (extension == null) {
+                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Only JPEG, PNG, GIF and WebP images are accepted");
+            }
+            if (pixels(temp) > maxPixels) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Image is larger than " + maxPixels / 1_000_000 + " megapixels");
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path dir = objectsDir.resolve(hash);
+            if (!touch(dir)) {
+                Files.createDirectories(dir);
+                Files.move(temp, dir.resolve("original" + extension), StandardCopyOption.ATOMIC_MOVE);
+            }
+            variantExecutor.submit(() -> generateVariants(hash));
+            return urlFor(hash, "full");
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to save image", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the orphan sweeper
+                }
+            }
+        }
+    }
+
+    // Same bytes already stored: touching the directory keeps the sweeper's grace period from reclaiming it
+    // before the new reference is saved. False when there is no directory, including when the sweeper has
+    // just moved it aside to delete it.
+    private static boolean touch(Path dir) throws IOException {
+        try {
+            Files.setLastModifiedTime(dir, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize.toBytes();
+    }
+
+    // The extension for the format the leading bytes identify, or null when it is not one we accept
+    static String sniffExtension(byte[] header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (startsWith(header, 0, 'G', 'I', 'F', '8')) {
+            return ".gif";
+        }
+        if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+            return ".webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int offset, int... expected) {
+        if (header.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((header[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String urlFor(String hash, String variant) {
+        return "/images/" + hash + "/" + variant;
+    }
+
+    // "/images/{hash}/full" -> "/images/{hash}/card"; legacy URLs have no thumbnail and are returned unchanged
+    public static String variantUrl(String imageUrl, String variant) {
+        String hash = hashOf(imageUrl);
+        return hash != null ? urlFor(hash, variant) : imageUrl;
+    }
+
+    public Path getObjectsDir() {
+        return objectsDir;
+    }
+
+    public static String hashOf(String imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+        Matcher m = URL_PATTERN.matcher(imageUrl);
+        return m.matches() ? m.group(1) : null;
+    }
+
+    // The generated variant, or null when it has not been generated (yet)
+    public Path variantPath(String hash, String variant) {
+        Path path = objectsDir.resolve(hash).resolve(variant + ".jpg");
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    public Path originalPath(String hash) {
+        Path dir = objectsDir.resolve(hash);
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        try (DirectoryStream<Path> originals = Files.newDirectoryStream(dir, "original*")) {
+            for (Path original : originals) {
+                return original;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read image store", e);
+        }
+        return null;
+    }
+
+    // Removes a directory under objects/ (a stored image and its variants), returning the bytes freed
+    public long delete(String name) throws IOException {
+        Path dir = objectsDir.resolve(name);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        long freed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    freed += size;
+                }
+            }
+        }
+        Files.deleteIfExists(dir);
+        return freed;
+    }
+
+    private void generateVariants(String hash) {
+        Path original = originalPath(hash);
+        if (original == null) {
+            return;
+        }
+        try {
+            BufferedImage source = decode(original);
+            if (source == null) {
+                // Not a format ImageIO can decode (WebP); the original keeps being served
+                return;
+            }
+            for (Map.Entry<String, Integer> variant : VARIANTS.entrySet()) {
+                Path target = objectsDir.resolve(hash).resolve(variant.getKey() + ".jpg");
+                if (!Files.exists(target)) {
+                    writeJpeg(resize(source, variant.getValue()), target);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to generate image variants for {}", hash, e);
+        }
+    }
+
+    // Width times height from the image header, without decoding the pixels; 0 when ImageIO has no reader
+    private long pixels(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(in);
+            if (reader == null) {
+                return 0;
+            }
+            try {
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Checks the dimensions again before decoding, for originals stored before the limit was lowered
+    private BufferedImage decode(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Not generating variants for {}: {} pixels is over the limit", file.getParent().getFileName(), pixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader reader(ImageInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, true, true);
+        return reader;
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxEdge) {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel, flatten transparent PNGs onto white
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        // Write to a temp file first so readers never see a half-written variant
+        Path temp = Files.createTempFile(target.getParent(), "variant-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp);
+             ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        variantExecutor.shutdown();
+    }
+}
@@ -0,0 +1,227 @@
+package com.studentbidz.site.service;
+
+import com.studentbidz.site.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Reclaims image files that no product references: stored images whose product was deleted or whose
+// photo was replaced, legacy uploads, and temp files left by failed uploads. Runs on the scheduler pool,
+// checks references in batches of batchSize and leaves anything younger than the grace period alone,
+// so an upload whose product row is not committed yet is never touched.
+// An unreferenced image directory is renamed to {hash}.deleting before it is deleted. From then on a new
+// upload of the same bytes creates a fresh directory instead of reusing this one, and if an upload touched it
+// between the reference check and the rename, it is renamed back.
+@Service
+public class ImageSweeper {
+    private static final Logger log = LoggerFactory.getLogger(ImageSweeper.class);
+
+    private static final String TOMBSTONE_SUFFIX = ".deleting";
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.images.sweep.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.images.sweep.grace-period:PT1H}")
+    private Duration gracePeriod;
+
+    private final Counter reclaimedBytes;
+    private final Counter deletedFiles;
+    private final Counter failures;
+
+    public ImageSweeper(MeterRegistry meterRegistry) {
+        this.reclaimedBytes = Counter.builder("images.sweeper.reclaimed")
+            .baseUnit("bytes")
+            .description("Bytes freed by deleting unreferenced images")
+            .register(meterRegistry);
+        this.deletedFiles = Counter.builder("images.sweeper.deleted")
+            .description("Unreferenced images and stale temp files deleted")
+            .register(meterRegistry);
+        this.failures = Counter.builder("images.sweeper.failures")
+            .description("Sweeps and deletions that failed with an I/O error")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.images.sweep.initial-delay-ms:300000}", fixedDelayString = "${app.images.sweep.interval-ms:3600000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        try {
+            sweepObjects(cutoff);
+            sweepLegacy(cutoff);
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Image sweep failed", e);
+        }
+    }
+
+    // uploads/objects/{hash}/ directories and upload-*.tmp files
+    private void sweepObjects(Instant cutoff) throws IOException {
+        Path objectsDir = imageStorageService.getObjectsDir();
+        if (!Files.isDirectory(objectsDir)) {
+            return;
+        }
+        Map<String, String> batch = new LinkedHashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(objectsDir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(TOMBSTONE_SUFFIX)) {
+                    // Left by a sweep that stopped between the rename and the delete (the listing may also
+                    // show one this sweep has already deleted)
+                    if (Files.isDirectory(entry)) {
+                        deleteObject(name);
+                    }
+                    continue;
+                }
+                if (!isOlderThan(entry, cutoff)) {
+                    continue;
+                }
+                if (Files.isDirectory(entry)) {
+                    batch.put(ImageStorageService.urlFor(name, "full"), name);
+                    if (batch.size() >= batchSize) {
+                        deleteUnreferencedObjects(batch, cutoff);
+                        batch.clear();
+                    }
+                } else if (name.endsWith(".tmp")) {
+                    deleteFile(entry);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteUnreferencedObjects(batch, cutoff);
+        }
+    }
+
+    private void deleteUnreferencedObjects(Map<String, String> hashesByUrl, Instant cutoff) {
+        Set<String> referenced = new HashSet<>(productRepository.findReferencedImageUrls(hashesByUrl.keySet()));
+        hashesByUrl.forEach((url, hash) -> {
+            if (!referenced.contains(url)) {
+                reclaim(hash, cutoff);
+            }
+        });
+    }
+
+    private void reclaim(String hash, Instant cutoff) {
+        Path dir = imageStorageService.getObjectsDir().resolve(hash);
+        Path tombstone = dir.resolveSibling(hash + TOMBSTONE_SUFFIX);
+        try {
+            // Uploaded again since the listing
+            if (!isOlderThan(dir, cutoff)) {
+                return;
+            }
+            Files.move(dir, tombstone, StandardCopyOption.ATOMIC_MOVE);
+            // Uploaded again between the check above and the rename; the rename keeps the mtime
+            if (!isOlderThan(tombstone, cutoff) && restore(tombstone, dir)) {
+                return;
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Failed to move image {} aside for deletion", hash, e);
+            return;
+        }
+        deleteObject(tombstone.getFileName().toString());
+    }
+
+    // False when a newer upload of the same bytes has already created the directory again
+    private boolean restore(Path tombstone, Path dir) {
+        try {
+            Files.move(tombstone, dir, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteObject(String name) {
+        try {
+            long freed = imageStorageService.delete(name);
+            reclaimedBytes.increment(freed);
+            deletedFiles.increment();
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Failed to delete image {}", name, e);
+        }
+    }
+
+    // Files written by the old timestamp_filename scheme, served as /images/{filename}
+    private void sweepLegacy(Instant cutoff) throws IOException {
+        Path root = imageStorageService.getObjectsDir().getParent();
+        if (root == null || !Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> batch = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path entry : entries) {
+                if (!isOlderThan(entry, cutoff)) {
+                    continue;
+                }
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    deleteUnreferencedLegacy(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteUnreferencedLegacy(batch);
+        }
+    }
+
+    private void deleteUnreferencedLegacy(List<Path> files) {
+        Map<String, Path> byUrl = new LinkedHashMap<>();
+        files.forEach(file -> byUrl.put("/images/" + file.getFileName(), file));
+        Set<String> referenced = new HashSet<>(productRepository.findReferencedImageUrls(byUrl.keySet()));
+        byUrl.forEach((url, file) -> {
+            if (!referenced.contains(url)) {
+                deleteFile(file);
+            }
+        });
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                reclaimedBytes.increment(size);
+                deletedFiles.increment();
+            }
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Failed to delete image file {}", file, e);
+        }
+    }
+
+    private boolean isOlderThan(Path path, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
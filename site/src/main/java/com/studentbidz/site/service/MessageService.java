@@ -1,18 +1,25 @@
 package com.studentbidz.site.service;
 
+import com.studentbidz.site.dto.ConversationResponse;
 import com.studentbidz.site.dto.MessageResponse;
 import com.studentbidz.site.entity.Message;
 import com.studentbidz.site.entity.Notification;
 import com.studentbidz.site.entity.Product;
 import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.ConversationStateRepository;
 import com.studentbidz.site.repository.MessageRepository;
 import com.studentbidz.site.repository.ProductRepository;
 import com.studentbidz.site.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class MessageService {
@@ -24,8 +31,19 @@ public class MessageService {
     private UserRepository userRepository;
     @Autowired
     private NotificationService notificationService;
+    @Autowired
+    private ConversationStateRepository conversationStateRepository;
+
+    private static final int MAX_PAGE_SIZE = 200;
 
-    public List<MessageResponse> getChatHistory(Long productId, String username) {
+    // Returns the latest page by default, older messages with before=<id>&beforeCreatedAt=<createdAt> and only
+    // newer ones with sinceId=<id>&sinceCreatedAt=<createdAt>. Messages are always returned oldest first.
+    @Transactional(readOnly = true)
+    public List<MessageResponse> getChatHistory(Long productId, String username, Long before, OffsetDateTime beforeCreatedAt,
+                                                Long sinceId, OffsetDateTime sinceCreatedAt, int limit) {
+        if ((before == null) != (beforeCreatedAt == null) || (sinceId == null) != (sinceCreatedAt == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A cursor needs both the message id and its createdAt");
+        }
         Product product = productRepository.findById(productId)
             .orElseThrow(() -> new RuntimeException("Product not found"));
         userRepository.findByUsername(username)
@@ -35,8 +53,15 @@ public class MessageService {
             (product.getWinner() == null || !product.getWinner().getUsername().equals(username))) {
             throw new RuntimeException("Not authorized to view chat");
         }
-        return messageRepository.findByProductOrderByCreatedAtAsc(product)
-            .stream().map(this::toResponse).collect(Collectors.toList());
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        if (sinceId != null) {
+            return messageRepository.findSince(productId, sinceCreatedAt, sinceId, page);
+        }
+        List<MessageResponse> messages = before != null
+            ? messageRepository.findBefore(productId, beforeCreatedAt, before, page)
+            : messageRepository.findLatest(productId, page);
+        Collections.reverse(messages);
+        return messages;
     }
 
     @Transactional
@@ -60,8 +85,10 @@ public class MessageService {
         message.setSender(sender);
         message.setReceiver(receiver);
         message.setContent(content);
-        message.setCreatedAt(java.time.OffsetDateTime.now());
-        messageRepository.save(message);
+        // At the precision the column stores, so the value returned here works as a paging cursor
+        message.setCreatedAt(OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        messageRepository.saveAndFlush(message);
+        conversationStateRepository.incrementUnread(productId, receiver.getId(), List.of(message.getId()));
         
         // Create notification for receiver
         notificationService.createNotification(
@@ -76,6 +103,41 @@ public class MessageService {
         return toResponse(message);
     }
 
+    @Transactional(readOnly = true)
+    public List<ConversationResponse> getConversations(String username) {
+        User user = userRepository.findByUsername(username)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        return messageRepository.findConversations(user.getId());
+    }
+
+    // Marks the chat read up to the message at (lastReadCreatedAt, lastReadMessageId), or the latest message
+    // when both are omitted. The message need not be stored yet.
+    @Transactional
+    public void markRead(Long productId, String username, Long lastReadMessageId, OffsetDateTime lastReadCreatedAt) {
+        Product product = productRepository.findById(productId)
+            .orElseThrow(() -> new RuntimeException("Product not found"));
+        User user = userRepository.findByUsername(username)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!product.getSeller().getUsername().equals(username) &&
+            (product.getWinner() == null || !product.getWinner().getUsername().equals(username))) {
+            throw new RuntimeException("Not authorized to view chat");
+        }
+        if ((lastReadMessageId == null) != (lastReadCreatedAt == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A read position needs both the message id and its createdAt");
+        }
+        if (lastReadMessageId == null) {
+            List<MessageResponse> latest = messageRepository.findLatest(productId, PageRequest.of(0, 1));
+            if (latest.isEmpty()) {
+                return;
+            }
+            lastReadMessageId = latest.get(0).getId();
+            lastReadCreatedAt = latest.get(0).getCreatedAt();
+        }
+        conversationStateRepository.ensureExists(productId, user.getId());
+        conversationStateRepository.lock(productId, user.getId());
+        conversationStateRepository.markRead(productId, user.getId(), lastReadCreatedAt, lastReadMessageId);
+    }
+
     private MessageResponse toResponse(Message message) {
         MessageResponse resp = new MessageResponse();
         resp.setId(message.getId());
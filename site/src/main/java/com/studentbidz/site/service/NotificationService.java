@@ -11,6 +11,8 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -56,10 +58,41 @@ public class NotificationService {
         createNotification(username, type, title, message, relatedUrl, product, null);
     }
 
-    public boolean existsNotification(String username, Notification.Type type, Long productId, String tag) {
-        return notificationRepository.existsByUserUsernameAndTypeAndProductIdAndTag(username, type, productId, tag);
+    // Fan out the same notification to many users with one batched insert
+    @Transactional
+    public void createNotifications(Collection<User> users, Notification.Type type, String title,
+                                    String message, String relatedUrl, Product product, String tag) {
+        List<Notification> notifications = new ArrayList<>(users.size());
+        for (User user : users) {
+            Notification notification = new Notification();
+            notification.setUser(user);
+            notification.setType(type);
+            notification.setTitle(title);
+            notification.setMessage(message);
+            notification.setRelatedUrl(relatedUrl);
+            notification.setProduct(product);
+            notification.setTag(tag);
+            notifications.add(notification);
+        }
+        createNotifications(notifications);
+    }
+
+    // Saves notifications the caller has already built, together, and pushes each to its user
+    @Transactional
+    public void createNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        for (Notification saved : notificationRepository.saveAll(notifications)) {
+            messagingTemplate.convertAndSendToUser(
+                saved.getUser().getUsername(),
+                "/topic/notifications",
+                toResponse(saved)
+            );
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<NotificationResponse> getUserNotifications(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new RuntimeException("User not found"));
@@ -70,6 +103,7 @@ public class NotificationService {
             .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<NotificationResponse> getUnreadNotifications(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new RuntimeException("User not found"));
@@ -80,6 +114,7 @@ public class NotificationService {
             .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public long getUnreadCount(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new RuntimeException("User not found"));
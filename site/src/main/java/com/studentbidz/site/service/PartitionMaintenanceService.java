@@ -0,0 +1,78 @@
+package com.studentbidz.site.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps the monthly partitions of bids_live and notifications_live in shape: partitions are created
+// monthsAhead months in advance so new rows never land in the default partition, and past months
+// that AuctionArchiver has emptied are dropped so the planner does not keep visiting them.
+@Service
+public class PartitionMaintenanceService {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private static final List<String> LIVE_TABLES = List.of("bids_live", "notifications_live");
+    private static final Pattern MONTH_PARTITION = Pattern.compile("_(\\d{4})_(\\d{2})$");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.partitions.maintenance-cron:0 30 3 * * *}")
+    public void maintain() {
+        for (String table : LIVE_TABLES) {
+            try {
+                createUpcomingPartitions(table);
+                dropEmptyPastPartitions(table);
+            } catch (Exception e) {
+                log.warn("Partition maintenance of {} failed", table, e);
+            }
+        }
+    }
+
+    private void createUpcomingPartitions(String table) {
+        jdbcTemplate.query("SELECT create_month_partitions(?, current_date, (current_date + make_interval(months => ?))::date)",
+            rs -> {}, table, monthsAhead);
+    }
+
+    private void dropEmptyPastPartitions(String table) {
+        // The previous month stays, since auctions that just closed still have their rows there
+        YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(1);
+        List<String> partitions = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = ?::regclass",
+            String.class, table);
+        for (String partition : partitions) {
+            Matcher matcher = MONTH_PARTITION.matcher(partition);
+            if (!matcher.find() || !YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                // The lock keeps AuctionArchiver.restore from moving rows back in between the check and the drop
+                jdbcTemplate.execute("LOCK TABLE " + partition + " IN ACCESS EXCLUSIVE MODE");
+                Boolean empty = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class);
+                if (Boolean.TRUE.equals(empty)) {
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                }
+            });
+        }
+    }
+}
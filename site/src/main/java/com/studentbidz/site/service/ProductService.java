@@ -13,14 +13,13 @@ import com.studentbidz.site.repository.ProductRepository;
 import com.studentbidz.site.repository.UserRepository;
 import com.studentbidz.site.repository.BidRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
@@ -40,38 +39,39 @@ public class ProductService {
     private BidRepository bidRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private AuctionBroadcaster broadcaster;
 
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private AuctionSnapshotService snapshotService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+
+    @Autowired
+    private AuctionArchiver auctionArchiver;
+
+    @Autowired
+    private RestrictedBidderIndex restrictedBidderIndex;
+
+    @Autowired
+    private ProxyBidService proxyBidService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private String saveProductImage(MultipartFile image) {
         if (image != null && !image.isEmpty()) {
-            try {
-                String uploadsDir = "uploads/";
-                Files.createDirectories(Paths.get(uploadsDir));
-                String filename = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                Path filePath = Paths.get(uploadsDir, filename);
-                image.transferTo(filePath);
-                return "/images/" + filename;
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to save image", e);
-            }
+            return imageStorageService.store(image);
         }
         return null;
     }
 
-    private void deleteProductImage(String imageUrl) {
-        if (imageUrl != null && !imageUrl.isEmpty()) {
-            String imagePath = imageUrl.replaceFirst("/images/", "uploads/");
-            try {
-                Files.deleteIfExists(Paths.get(imagePath));
-            } catch (Exception e) {
-                System.err.println("Failed to delete image file: " + imagePath);
-            }
-        }
-    }
-
     public ProductResponse createProduct(ProductCreateRequest request, MultipartFile image, String username) {
         System.out.println("Principal username: " + username);
 userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUsername()));
@@ -92,12 +92,31 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         return toResponse(saved);
     }
 
+    // Streaming replacement for the product photo; the request body is the raw image. The upload is stored
+    // before any transaction starts, so a slow client never holds a database connection; if the caller
+    // turns out not to be the seller, the stored file is left for ImageSweeper.
+    public ProductResponse replaceImage(Long productId, InputStream body, String username) {
+        String imageUrl = imageStorageService.store(body);
+        return transactionTemplate.execute(status -> {
+            Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+            if (!product.getSeller().getUsername().equals(username)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the seller can change the product image");
+            }
+            // The previous image is left for ImageSweeper once nothing references it
+            product.setImageUrl(imageUrl);
+            return toResponse(productRepository.save(product));
+        });
+    }
+
+    @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
         return productRepository.findByStatus(Product.Status.ACTIVE).stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ProductResponse> getSellerProducts(String sellerUsername) {
         return productRepository.findAll().stream()
             .filter(p -> p.getSeller().getUsername().equals(sellerUsername) && 
@@ -106,6 +125,7 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
             .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ProductResponse> getProductsByType(String type) {
         List<Product> products;
         if (type == null || type.equalsIgnoreCase("ALL")) {
@@ -144,19 +164,20 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         // Update the end time
         OffsetDateTime newEndTime = request.getNewEndTime();
         product.setEndTime(newEndTime);
+        product.setWarnedAt(null); // New end time gets its own 30-minute warning
         Product savedProduct = productRepository.save(product);
+        snapshotService.evict(productId);
         
         // Send WebSocket notification
-        AuctionTimeUpdateMessage message = new AuctionTimeUpdateMessage(
+        broadcaster.broadcast(productId, "auction-time-update", () -> new AuctionTimeUpdateMessage(
             productId, 
             newEndTime, 
             request.getReason(), 
             username
-        );
-        messagingTemplate.convertAndSend("/topic/auction-time-update/" + productId, message);
+        ));
         
         // Create notifications for all bidders
-        List<Bid> bids = bidRepository.findByProduct(product);
+        List<Bid> bids = bidRepository.findCurrentByProduct(product);
         for (Bid bid : bids) {
             notificationService.createNotification(
                 bid.getBidder().getUsername(),
@@ -173,7 +194,8 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
 
     @Transactional
     public ProductResponse relistProduct(Long productId, RelistProductRequest request, String username) {
-        Product product = productRepository.findById(productId)
+        // Locked until the bids are trimmed and the price recomputed
+        Product product = productRepository.findByIdForUpdate(productId)
             .orElseThrow(() -> new RuntimeException("Product not found"));
         
         // Check if user is the seller
@@ -191,9 +213,12 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         if (request.getNewEndTime().isBefore(now)) {
             throw new RuntimeException("New end time must be in the future");
         }
+
+        // A long-closed auction may have been archived; it is live again now
+        auctionArchiver.restore(productId);
         
         // Get all bids for this product, ordered by amount descending
-        List<Bid> allBids = bidRepository.findByProductOrderByAmountDesc(product);
+        List<Bid> allBids = bidRepository.findCurrentByProductOrderByAmountDesc(product);
         
         // Find the second-highest bid amount and preserve it
         BigDecimal newStartingPrice = product.getStartingPrice(); // fallback to original starting price
@@ -216,6 +241,10 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
             // Delete all bids if no second-highest bid exists
             bidRepository.deleteByProduct(product);
         }
+        productRepository.refreshCurrentPrice(productId);
+        // Maximums were registered against the old auction
+        proxyBidService.clear(productId);
+        product.setCurrentPrice(secondHighestBid != null ? secondHighestBid.getAmount() : null);
         
         // Reset product status and winner, update starting price and end time
         product.setStatus(Product.Status.ACTIVE);
@@ -223,16 +252,18 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         product.setStartingPrice(newStartingPrice);
         OffsetDateTime relistEndTime = request.getNewEndTime();
         product.setEndTime(relistEndTime);
+        product.setWarnedAt(null);
         
         Product savedProduct = productRepository.save(product);
+        snapshotService.evict(productId);
+        chatWriteBehindService.evictParticipants(productId);
         
         // Send WebSocket notification
-        ProductRelistMessage message = new ProductRelistMessage(
+        broadcaster.broadcast(productId, "product-relist", () -> new ProductRelistMessage(
             productId, 
             relistEndTime, 
             username
-        );
-        messagingTemplate.convertAndSend("/topic/product-relist/" + productId, message);
+        ));
         
         // Create notification for the preserved bidder (if any)
         if (secondHighestBid != null) {
@@ -260,6 +291,7 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
             .orElseThrow(() -> new RuntimeException("User not found"));
         product.getRestrictedBidders().add(user);
         productRepository.save(product);
+        restrictedBidderIndex.restrict(productId, userId);
     }
 
     @Transactional
@@ -273,6 +305,7 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
             .orElseThrow(() -> new RuntimeException("User not found"));
         product.getRestrictedBidders().remove(user);
         productRepository.save(product);
+        restrictedBidderIndex.unrestrict(productId, userId);
     }
 
     @Transactional
@@ -285,12 +318,15 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
             throw new RuntimeException("You are not authorized to delete this product");
         }
         // Delete all bids for this product
-        bidRepository.findByProduct(product).forEach(bidRepository::delete);
+        bidRepository.deleteByProduct(product);
+        proxyBidService.clear(id);
         // Remove product from restricted bidders
         product.getRestrictedBidders().clear();
-        // Delete image file if exists
-        deleteProductImage(product.getImageUrl());
+        // The image file is reclaimed by ImageSweeper once no product references it
         productRepository.delete(product);
+        snapshotService.evict(id);
+        chatWriteBehindService.evictParticipants(id);
+        restrictedBidderIndex.evict(id);
     }
 
     public ProductResponse toResponse(Product product) {
@@ -299,20 +335,19 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         resp.setTitle(product.getTitle());
         resp.setDescription(product.getDescription());
         resp.setImageUrl(product.getImageUrl());
+        resp.setThumbnailUrl(ImageStorageService.variantUrl(product.getImageUrl(), "card"));
         resp.setStartingPrice(product.getStartingPrice());
         resp.setEndTime(product.getEndTime());
         resp.setSellerUsername(product.getSeller().getUsername());
         resp.setType(product.getType().name());
         
         // Set currentBid (highest bid)
-        BigDecimal currentBid = bidRepository.findTopByProductOrderByAmountDesc(product)
-            .map(bid -> bid.getAmount())
-            .orElse(product.getStartingPrice());
+        BigDecimal currentBid = product.getCurrentPrice() != null ? product.getCurrentPrice() : product.getStartingPrice();
         resp.setCurrentBid(currentBid);
         
         // Set second-highest bid for sold products (for relisting purposes)
         if (product.getStatus() == Product.Status.SOLD) {
-            List<Bid> allBids = bidRepository.findByProductOrderByAmountDesc(product);
+            List<Bid> allBids = bidRepository.findCurrentByProductOrderByAmountDesc(product);
             if (allBids.size() >= 2) {
                 resp.setSecondHighestBid(allBids.get(1).getAmount());
             } else {
@@ -324,8 +359,8 @@ userRepository.findAll().forEach(u -> System.out.println("DB user: " + u.getUser
         if (product.getWinner() != null) {
             resp.setWinnerUsername(product.getWinner().getUsername());
         }
-        // Set restrictedBidders as list of user IDs
-        resp.setRestrictedBidders(product.getRestrictedBidders().stream().map(u -> u.getId()).collect(java.util.stream.Collectors.toList()));
+        // Set restrictedBidders as list of user IDs, from the in-memory index rather than the lazy collection
+        resp.setRestrictedBidders(restrictedBidderIndex.getRestrictedBidders(product.getId()));
         return resp;
     }
 } 
\ No newline at end of file
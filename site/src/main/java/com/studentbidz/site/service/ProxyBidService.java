@@ -0,0 +1,110 @@
+package com.studentbidz.site.service;
+
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.entity.ProxyBid;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.ProxyBidRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+// Proxy (maximum) bidding. Whenever the price of an auction changes, resolve() takes every registered
+// maximum that could still beat it and works out in memory where a bidding war between them would end:
+// the highest maximum wins, one increment above the runner-up and never above its own maximum. Only
+// that outcome is placed, as a single automatic bid, instead of the back-and-forth it stands for.
+@Service
+public class ProxyBidService {
+    // Same as the minimum increment place_bid enforces
+    private static final BigDecimal INCREMENT = BigDecimal.ONE;
+
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+
+    @Autowired
+    private RestrictedBidderIndex restrictedBidderIndex;
+
+    @Getter
+    @AllArgsConstructor
+    public static class AutoBid {
+        private final Long bidderId;
+        private final BigDecimal amount;
+    }
+
+    // One contender in a resolution: a proxy, or the current leader standing on their bid
+    @AllArgsConstructor
+    private static class Entrant {
+        final Long bidderId;
+        final BigDecimal max;
+        final boolean leader;
+        final OffsetDateTime registeredAt;
+    }
+
+    // The automatic bid the proxies make against price, or null when leaderId keeps the lead at price.
+    // leaderId is null when the auction has no bids yet; price is then the starting price.
+    public AutoBid resolve(Long productId, BigDecimal price, Long leaderId) {
+        List<ProxyBid> proxies = proxyBidRepository.findAbove(productId, price);
+        if (proxies.isEmpty()) {
+            return null;
+        }
+        List<Entrant> entrants = new ArrayList<>();
+        for (ProxyBid proxy : proxies) {
+            Long bidderId = proxy.getBidder().getId();
+            if (!restrictedBidderIndex.isRestricted(productId, bidderId)) {
+                entrants.add(new Entrant(bidderId, proxy.getMaxAmount(), bidderId.equals(leaderId), proxy.getCreatedAt()));
+            }
+        }
+        if (leaderId != null && entrants.stream().noneMatch(e -> e.leader)) {
+            entrants.add(new Entrant(leaderId, price, true, null));
+        }
+        // Highest maximum first; on a tie the leader keeps the lead, then the earliest registration wins
+        entrants.sort(Comparator.comparing((Entrant e) -> e.max).reversed()
+            .thenComparing(e -> !e.leader)
+            .thenComparing(e -> e.registeredAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+        Entrant winner = entrants.get(0);
+        if (winner.leader && entrants.size() == 1) {
+            // Nobody is challenging the leader
+            return null;
+        }
+        BigDecimal runnerUp = entrants.size() > 1 ? entrants.get(1).max.max(price) : price;
+        BigDecimal amount = winner.max.min(runnerUp.add(INCREMENT));
+        if (amount.subtract(price).compareTo(INCREMENT) < 0) {
+            // Nobody can beat the price by a full increment
+            return null;
+        }
+        return new AutoBid(winner.bidderId, amount);
+    }
+
+    public Optional<ProxyBid> find(Long productId, Long bidderId) {
+        return proxyBidRepository.findByProductIdAndBidderId(productId, bidderId);
+    }
+
+    // Registers or changes a maximum; a changed maximum keeps its original registration time
+    public ProxyBid register(Product product, User bidder, BigDecimal maxAmount) {
+        ProxyBid proxy = proxyBidRepository.findByProductIdAndBidderId(product.getId(), bidder.getId())
+            .orElseGet(() -> {
+                ProxyBid created = new ProxyBid();
+                created.setProduct(product);
+                created.setBidder(bidder);
+                return created;
+            });
+        proxy.setMaxAmount(maxAmount);
+        return proxyBidRepository.save(proxy);
+    }
+
+    public boolean cancel(Long productId, Long bidderId) {
+        return proxyBidRepository.deleteByProductIdAndBidderId(productId, bidderId) > 0;
+    }
+
+    // Relisted or deleted products start without proxies
+    public void clear(Long productId) {
+        proxyBidRepository.deleteByProductId(productId);
+    }
+}
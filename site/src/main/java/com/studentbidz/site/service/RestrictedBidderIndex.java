@@ -0,0 +1,111 @@
+package com.studentbidz.site.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Restricted bidders of each product as a compressed bitmap of user ids, loaded from
+// product_restricted_bidders the first time a product is asked about and then kept current by
+// restrict/unrestrict. Bitmaps are never mutated in place: a change swaps in a modified copy, so
+// readers need no locking. Entries expire after app.bids.restricted.ttl, which bounds how long a change
+// made on another node goes unseen here (place_bid checks the table itself, so a restriction is
+// enforced regardless; only a lifted one can be late).
+@Service
+public class RestrictedBidderIndex {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // A load in progress is a pending future, so concurrent readers of the same product wait for it
+    private final Cache<Long, CompletableFuture<Roaring64Bitmap>> restricted;
+
+    public RestrictedBidderIndex(@Value("${app.bids.restricted.ttl:PT1M}") Duration ttl,
+                                 @Value("${app.bids.restricted.max-entries:10000}") long maxEntries) {
+        this.restricted = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maxEntries)
+            .build();
+    }
+
+    public boolean isRestricted(Long productId, Long userId) {
+        return bitmap(productId).contains(userId);
+    }
+
+    public List<Long> getRestrictedBidders(Long productId) {
+        return Arrays.stream(bitmap(productId).toArray()).boxed().collect(Collectors.toList());
+    }
+
+    // Both apply once the surrounding transaction commits, so a rolled-back change never shows up here
+    public void restrict(Long productId, Long userId) {
+        change(productId, bitmap -> bitmap.addLong(userId));
+    }
+
+    public void unrestrict(Long productId, Long userId) {
+        change(productId, bitmap -> bitmap.removeLong(userId));
+    }
+
+    public void evict(Long productId) {
+        restricted.invalidate(productId);
+    }
+
+    // The query runs outside the cache, so a slow one holds up only readers of the same product
+    private Roaring64Bitmap bitmap(Long productId) {
+        CompletableFuture<Roaring64Bitmap> loading = new CompletableFuture<>();
+        CompletableFuture<Roaring64Bitmap> existing = restricted.asMap().putIfAbsent(productId, loading);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            Roaring64Bitmap loaded = load(productId);
+            loading.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            restricted.asMap().remove(productId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Roaring64Bitmap load(Long productId) {
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        jdbcTemplate.query("SELECT user_id FROM product_restricted_bidders WHERE product_id = ?",
+            rs -> { bitmap.addLong(rs.getLong(1)); }, productId);
+        bitmap.runOptimize();
+        return bitmap;
+    }
+
+    // Not cached: nothing to do, the next read loads the committed state. A load still in flight may have
+    // read the state from before this change, so it is dropped rather than changed.
+    private void change(Long productId, Consumer<Roaring64Bitmap> change) {
+        AfterCommit.run(() -> restricted.asMap().computeIfPresent(productId, (id, future) -> {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return null;
+            }
+            Roaring64Bitmap updated = future.join().clone();
+            change.accept(updated);
+            return CompletableFuture.completedFuture(updated);
+        }));
+    }
+
+    private static Roaring64Bitmap await(CompletableFuture<Roaring64Bitmap> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
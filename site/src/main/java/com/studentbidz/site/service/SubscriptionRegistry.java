@@ -0,0 +1,137 @@
+package com.studentbidz.site.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Live subscriber counts per STOMP destination on this node, built from SUBSCRIBE/UNSUBSCRIBE/DISCONNECT
+// events. Publishers ask hasSubscribers() before building a broadcast; per-product counts are
+// exported as the auction.watchers gauge. Every count changes in a single atomic map operation, so a
+// count that reaches zero is removed without racing a concurrent increment of the same key.
+@Service
+public class SubscriptionRegistry {
+    private static final Pattern PRODUCT_TOPIC = Pattern.compile("^/topic/[a-z-]+/(\\d+)$");
+
+    // With a broker relay, watchers may be connected to other nodes, so local counts cannot rule out a send
+    @Value("${app.websocket.broker:simple}")
+    private String brokerMode;
+
+    // sessionId -> (subscriptionId -> destination)
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> destinationCounts = new ConcurrentHashMap<>();
+    // productId -> (sessionId -> number of that session's subscriptions to the product's topics)
+    private final Map<Long, Map<String, Integer>> productWatchers = new ConcurrentHashMap<>();
+
+    private final MultiGauge watchersGauge;
+
+    public SubscriptionRegistry(MeterRegistry meterRegistry) {
+        this.watchersGauge = MultiGauge.builder("auction.watchers")
+            .description("Sessions subscribed to at least one topic of the product")
+            .register(meterRegistry);
+    }
+
+    public boolean hasSubscribers(String destination) {
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            return true;
+        }
+        return destinationCounts.containsKey(destination);
+    }
+
+    public int getSubscriberCount(String destination) {
+        return destinationCounts.getOrDefault(destination, 0);
+    }
+
+    public int getWatcherCount(Long productId) {
+        Map<String, Integer> watchers = productWatchers.get(productId);
+        return watchers != null ? watchers.size() : 0;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+            .put(subscriptionId, destination);
+        if (previous != null) {
+            removeDestination(sessionId, previous);
+        }
+        addDestination(sessionId, destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            removeDestination(accessor.getSessionId(), destination);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(destination -> removeDestination(event.getSessionId(), destination));
+        }
+    }
+
+    @Scheduled(fixedRate = 15000)
+    public void publishWatcherMetrics() {
+        List<MultiGauge.Row<?>> rows = productWatchers.entrySet().stream()
+            .map(entry -> MultiGauge.Row.of(Tags.of("productId", entry.getKey().toString()), entry.getValue().size()))
+            .collect(Collectors.toList());
+        watchersGauge.register(rows, true);
+    }
+
+    private void addDestination(String sessionId, String destination) {
+        destinationCounts.merge(destination, 1, Integer::sum);
+        Long productId = productIdOf(destination);
+        if (productId != null) {
+            productWatchers.compute(productId, (id, watchers) -> {
+                Map<String, Integer> updated = watchers != null ? watchers : new ConcurrentHashMap<>();
+                updated.merge(sessionId, 1, Integer::sum);
+                return updated;
+            });
+        }
+    }
+
+    private void removeDestination(String sessionId, String destination) {
+        destinationCounts.computeIfPresent(destination, (d, count) -> count <= 1 ? null : count - 1);
+        Long productId = productIdOf(destination);
+        if (productId != null) {
+            productWatchers.computeIfPresent(productId, (id, watchers) -> {
+                watchers.computeIfPresent(sessionId, (s, n) -> n <= 1 ? null : n - 1);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+    }
+
+    private Long productIdOf(String destination) {
+        Matcher matcher = PRODUCT_TOPIC.matcher(destination);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.studentbidz.site.service;
+
+import com.studentbidz.site.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+// Explicit eviction for the User second-level cache. Writes through JPA already keep it consistent;
+// call this after changes Hibernate cannot see (roles edited by SQL or another node). Username-to-id
+// resolutions need no eviction: usernames never change, and a name that was not found is not cached.
+@Service
+public class UserCacheService {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void evict(Long userId) {
+        Cache cache = entityManagerFactory.unwrap(org.hibernate.SessionFactory.class).getCache();
+        cache.evictEntityData(User.class, userId);
+        cache.evictCollectionData(User.class.getName() + ".roles", userId);
+    }
+}
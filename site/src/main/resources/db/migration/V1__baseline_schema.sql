@@ -0,0 +1,80 @@
+-- Baseline schema, matching what spring.jpa.hibernate.ddl-auto=update used to create.
+-- Every statement is idempotent so this also runs cleanly against databases created by ddl-auto
+-- (spring.flyway.baseline-version=0 makes Flyway apply V1 on them instead of skipping it).
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username varchar(255) NOT NULL UNIQUE,
+    email varchar(255) NOT NULL UNIQUE,
+    password varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    user_id bigint NOT NULL CONSTRAINT fk_user_roles_user REFERENCES users,
+    role varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title varchar(255) NOT NULL,
+    description varchar(2000),
+    image_url varchar(255),
+    starting_price numeric(38,2) NOT NULL,
+    end_time timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    warned_at timestamp(6) with time zone,
+    seller_id bigint NOT NULL CONSTRAINT fk_products_seller REFERENCES users,
+    winner_id bigint CONSTRAINT fk_products_winner REFERENCES users,
+    status varchar(255) NOT NULL CHECK (status IN ('ACTIVE','ENDED','SOLD')),
+    type varchar(255) NOT NULL CHECK (type IN ('BOOKS','ELECTRONICS','CLOTHING','STATIONARY','ACCESSORIES','OTHERS'))
+);
+
+-- Added after the first ddl-auto deployments
+ALTER TABLE products ADD COLUMN IF NOT EXISTS warned_at timestamp(6) with time zone;
+
+CREATE TABLE IF NOT EXISTS product_restricted_bidders (
+    product_id bigint NOT NULL CONSTRAINT fk_restricted_bidders_product REFERENCES products,
+    user_id bigint NOT NULL CONSTRAINT fk_restricted_bidders_user REFERENCES users,
+    PRIMARY KEY (product_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS bids (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount numeric(38,2) NOT NULL,
+    timestamp timestamp(6) with time zone NOT NULL,
+    product_id bigint NOT NULL CONSTRAINT fk_bids_product REFERENCES products,
+    bidder_id bigint NOT NULL CONSTRAINT fk_bids_bidder REFERENCES users
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id bigint NOT NULL CONSTRAINT fk_messages_product REFERENCES products,
+    sender_id bigint NOT NULL CONSTRAINT fk_messages_sender REFERENCES users,
+    receiver_id bigint NOT NULL CONSTRAINT fk_messages_receiver REFERENCES users,
+    content varchar(1000) NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_messages_product_created_id ON messages (product_id, created_at, id);
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id bigint NOT NULL CONSTRAINT fk_notifications_user REFERENCES users,
+    product_id bigint CONSTRAINT fk_notifications_product REFERENCES products,
+    title varchar(255) NOT NULL,
+    message varchar(500),
+    related_url varchar(255),
+    tag varchar(255),
+    status varchar(255) NOT NULL CHECK (status IN ('READ','UNREAD')),
+    type varchar(255) NOT NULL CHECK (type IN ('CHAT_MESSAGE','DECLARED_WINNER','OUTBID','AUCTION_ENDING','AUCTION_ENDED','PRODUCT_RELISTED','TIME_UPDATED','WINNER_EXITED')),
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS conversation_states (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id bigint NOT NULL CONSTRAINT fk_conversation_states_product REFERENCES products,
+    user_id bigint NOT NULL CONSTRAINT fk_conversation_states_user REFERENCES users,
+    unread_count integer NOT NULL,
+    last_read_message_id bigint,
+    CONSTRAINT uk_conversation_states_product_user UNIQUE (product_id, user_id)
+);
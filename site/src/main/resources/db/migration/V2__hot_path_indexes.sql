@@ -0,0 +1,16 @@
+-- Composite indexes for the hottest queries. CONCURRENTLY keeps the tables writable while they build;
+-- Flyway runs a migration made only of such statements outside a transaction.
+
+-- BidRepository.findTopByProductOrderByAmountDesc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bids_product_amount ON bids (product_id, amount DESC);
+
+-- BidRepository.countByBidderSince / countByBidderAndProductSince
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bids_bidder_timestamp ON bids (bidder_id, timestamp);
+
+-- ProductRepository.findByStatusAndEndTimeBefore / findByStatusOrderByEndTimeAsc (AuctionScheduler)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_status_end_time ON products (status, end_time);
+
+-- NotificationRepository.findByUserAndStatusOrderByCreatedAtDesc / countByUserAndStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notifications_user_status_created ON notifications (user_id, status, created_at);
+
+-- messages (product_id, created_at) is already served by idx_messages_product_created_id from V1
@@ -0,0 +1,99 @@
+-- bids and notifications become partitioned tables:
+--
+--   bids                       PARTITION BY LIST (archived)
+--     bids_live                  archived = false, PARTITION BY RANGE (timestamp), one partition per month
+--       bids_live_2026_10 ...
+--       bids_live_default        catches rows outside the pre-created months
+--     bids_archive               archived = true, rows of auctions closed long ago (AuctionArchiver)
+--
+-- notifications has the same layout keyed on created_at. Queries keep going through the parent tables,
+-- so reads of archived auctions work unchanged, while the live partitions and their indexes only hold
+-- the working set. Archive partitions can be moved to cheaper storage with ALTER TABLE ... SET TABLESPACE.
+
+-- Creates the monthly range partitions parent_YYYY_MM for every month from first_month to last_month.
+-- Also called by PartitionMaintenanceService to keep partitions created ahead of time.
+CREATE OR REPLACE FUNCTION create_month_partitions(parent text, first_month date, last_month date) RETURNS void AS $$
+DECLARE
+    month_start date;
+BEGIN
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', first_month), date_trunc('month', last_month), interval '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            parent || '_' || to_char(month_start, 'YYYY_MM'), parent,
+            month_start, (month_start + interval '1 month')::date);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- bids
+
+ALTER TABLE bids RENAME TO bids_unpartitioned;
+ALTER INDEX bids_pkey RENAME TO bids_unpartitioned_pkey;
+ALTER TABLE bids_unpartitioned ALTER COLUMN id DROP IDENTITY IF EXISTS;
+DROP INDEX IF EXISTS idx_bids_product_amount;
+DROP INDEX IF EXISTS idx_bids_bidder_timestamp;
+
+CREATE TABLE bids (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    amount numeric(38,2) NOT NULL,
+    timestamp timestamp(6) with time zone NOT NULL,
+    product_id bigint NOT NULL CONSTRAINT fk_bids_product REFERENCES products,
+    bidder_id bigint NOT NULL CONSTRAINT fk_bids_bidder REFERENCES users,
+    archived boolean NOT NULL DEFAULT false,
+    -- a unique key on a partitioned table has to contain every partitioning column
+    PRIMARY KEY (id, archived, timestamp)
+) PARTITION BY LIST (archived);
+
+CREATE TABLE bids_live PARTITION OF bids FOR VALUES IN (false) PARTITION BY RANGE (timestamp);
+CREATE TABLE bids_live_default PARTITION OF bids_live DEFAULT;
+CREATE TABLE bids_archive PARTITION OF bids FOR VALUES IN (true);
+
+SELECT create_month_partitions('bids_live', least(min(timestamp), now())::date, (now() + interval '3 months')::date)
+FROM bids_unpartitioned;
+
+INSERT INTO bids (id, amount, timestamp, product_id, bidder_id)
+SELECT id, amount, timestamp, product_id, bidder_id FROM bids_unpartitioned;
+DROP TABLE bids_unpartitioned;
+SELECT setval(pg_get_serial_sequence('bids', 'id'), coalesce(max(id), 0) + 1, false) FROM bids;
+
+CREATE INDEX idx_bids_product_amount ON bids (product_id, amount DESC);
+CREATE INDEX idx_bids_bidder_timestamp ON bids (bidder_id, timestamp);
+
+-- notifications
+
+ALTER TABLE notifications RENAME TO notifications_unpartitioned;
+ALTER INDEX notifications_pkey RENAME TO notifications_unpartitioned_pkey;
+ALTER TABLE notifications_unpartitioned ALTER COLUMN id DROP IDENTITY IF EXISTS;
+DROP INDEX IF EXISTS idx_notifications_user_status_created;
+
+CREATE TABLE notifications (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id bigint NOT NULL CONSTRAINT fk_notifications_user REFERENCES users,
+    product_id bigint CONSTRAINT fk_notifications_product REFERENCES products,
+    title varchar(255) NOT NULL,
+    message varchar(500),
+    related_url varchar(255),
+    tag varchar(255),
+    status varchar(255) NOT NULL CHECK (status IN ('READ','UNREAD')),
+    type varchar(255) NOT NULL CHECK (type IN ('CHAT_MESSAGE','DECLARED_WINNER','OUTBID','AUCTION_ENDING','AUCTION_ENDED','PRODUCT_RELISTED','TIME_UPDATED','WINNER_EXITED')),
+    created_at timestamp(6) with time zone NOT NULL,
+    archived boolean NOT NULL DEFAULT false,
+    PRIMARY KEY (id, archived, created_at)
+) PARTITION BY LIST (archived);
+
+CREATE TABLE notifications_live PARTITION OF notifications FOR VALUES IN (false) PARTITION BY RANGE (created_at);
+CREATE TABLE notifications_live_default PARTITION OF notifications_live DEFAULT;
+CREATE TABLE notifications_archive PARTITION OF notifications FOR VALUES IN (true);
+
+SELECT create_month_partitions('notifications_live', least(min(created_at), now())::date, (now() + interval '3 months')::date)
+FROM notifications_unpartitioned;
+
+INSERT INTO notifications (id, user_id, product_id, title, message, related_url, tag, status, type, created_at)
+SELECT id, user_id, product_id, title, message, related_url, tag, status, type, created_at FROM notifications_unpartitioned;
+DROP TABLE notifications_unpartitioned;
+SELECT setval(pg_get_serial_sequence('notifications', 'id'), coalesce(max(id), 0) + 1, false) FROM notifications;
+
+CREATE INDEX idx_notifications_user_status_created ON notifications (user_id, status, created_at);
+-- Lets AuctionArchiver find and move the notifications of a product without scanning every partition
+CREATE INDEX idx_notifications_product ON notifications (product_id);
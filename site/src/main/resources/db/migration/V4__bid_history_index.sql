@@ -0,0 +1,4 @@
+-- Bids are append-only; a bidder's current bid is their row with no newer (higher id) row on the same
+-- product. This index answers that NOT EXISTS probe and the per-bidder rate-limit lookup.
+-- CONCURRENTLY is not available on partitioned tables, so this is an ordinary build on each partition.
+CREATE INDEX IF NOT EXISTS idx_bids_product_bidder_id ON bids (product_id, bidder_id, id);
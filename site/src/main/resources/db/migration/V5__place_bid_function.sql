@@ -0,0 +1,85 @@
+-- Evaluates every bid rule and writes the bid in one call, so placing a bid is a single round trip.
+-- Locking the product row first serializes bids on the same product; under READ COMMITTED each later
+-- statement in the function takes a fresh snapshot, so the highest bid it reads is the one it beats.
+-- outcome is ACCEPTED or the code of the first rule that failed (see BidService.placeBid).
+CREATE OR REPLACE FUNCTION place_bid(p_product_id bigint, p_bidder_id bigint, p_amount numeric)
+RETURNS TABLE (
+    outcome text,
+    bid_id bigint,
+    placed_at timestamptz,
+    ends_at timestamptz,
+    extended boolean,
+    outbid_username varchar,
+    product_title varchar,
+    seller_username varchar
+) LANGUAGE plpgsql AS $$
+DECLARE
+    product products%ROWTYPE;
+    now_ts timestamptz;
+    highest numeric;
+    highest_bidder_id bigint;
+BEGIN
+    SELECT * INTO product FROM products p WHERE p.id = p_product_id FOR UPDATE;
+    IF NOT FOUND THEN
+        outcome := 'NOT_FOUND';
+        RETURN NEXT;
+        RETURN;
+    END IF;
+    -- Taken after the lock so that time spent waiting for it does not count against the bidder
+    now_ts := clock_timestamp();
+
+    IF product.status <> 'ACTIVE' OR product.end_time < now_ts THEN
+        outcome := 'ENDED';
+    ELSIF EXISTS (SELECT 1 FROM bids b WHERE b.product_id = p_product_id AND b.bidder_id = p_bidder_id
+                  AND b.timestamp > now_ts - interval '1 minute') THEN
+        outcome := 'TOO_FREQUENT';
+    ELSIF EXISTS (SELECT 1 FROM product_restricted_bidders r WHERE r.product_id = p_product_id AND r.user_id = p_bidder_id) THEN
+        outcome := 'RESTRICTED';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    SELECT b.amount, b.bidder_id INTO highest, highest_bidder_id
+    FROM bids b WHERE b.product_id = p_product_id ORDER BY b.amount DESC LIMIT 1;
+    highest := coalesce(highest, product.starting_price);
+
+    IF p_amount > highest * 2 THEN
+        outcome := 'TOO_HIGH';
+    ELSIF p_amount - highest < 1 THEN
+        outcome := 'TOO_LOW';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND b.timestamp >= now_ts - interval '1 day') >= 50 THEN
+        outcome := 'DAILY_LIMIT';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND b.product_id = p_product_id
+           AND b.timestamp >= now_ts - interval '1 day') >= 20 THEN
+        outcome := 'PRODUCT_DAILY_LIMIT';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    -- Bids are append-only, so a re-bid is just another insert
+    INSERT INTO bids (amount, timestamp, product_id, bidder_id)
+    VALUES (p_amount, now_ts, p_product_id, p_bidder_id)
+    RETURNING id INTO bid_id;
+
+    -- Anti-sniping: a bid in the final minute extends the auction by 2 minutes
+    ends_at := product.end_time;
+    extended := product.end_time < now_ts + interval '1 minute';
+    IF extended THEN
+        ends_at := product.end_time + interval '2 minutes';
+        UPDATE products SET end_time = ends_at WHERE id = p_product_id;
+    END IF;
+
+    outcome := 'ACCEPTED';
+    placed_at := now_ts;
+    product_title := product.title;
+    SELECT u.username INTO seller_username FROM users u WHERE u.id = product.seller_id;
+    IF highest_bidder_id IS NOT NULL THEN
+        SELECT u.username INTO outbid_username FROM users u WHERE u.id = highest_bidder_id;
+    END IF;
+    RETURN NEXT;
+END;
+$$;
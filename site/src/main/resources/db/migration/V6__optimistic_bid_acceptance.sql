@@ -0,0 +1,102 @@
+-- products.current_price holds the highest accepted bid (null until the first one) and is the
+-- compare-and-set target of place_bid: instead of locking the product row up front, place_bid checks
+-- the rules against the price it read and then updates the row only if that price is still current.
+-- If another bid got there first the update matches nothing and place_bid returns CONFLICT, leaving
+-- nothing written; BidService retries with a fresh read. Only the winning update holds the row lock,
+-- and only for the rest of its own transaction.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS current_price numeric(38,2);
+
+UPDATE products p SET current_price = b.highest
+FROM (SELECT product_id, max(amount) AS highest FROM bids GROUP BY product_id) b
+WHERE b.product_id = p.id;
+
+CREATE OR REPLACE FUNCTION place_bid(p_product_id bigint, p_bidder_id bigint, p_amount numeric)
+RETURNS TABLE (
+    outcome text,
+    bid_id bigint,
+    placed_at timestamptz,
+    ends_at timestamptz,
+    extended boolean,
+    outbid_username varchar,
+    product_title varchar,
+    seller_username varchar
+) LANGUAGE plpgsql AS $$
+DECLARE
+    product products%ROWTYPE;
+    now_ts timestamptz;
+    highest numeric;
+    highest_bidder_id bigint;
+BEGIN
+    SELECT * INTO product FROM products p WHERE p.id = p_product_id;
+    IF NOT FOUND THEN
+        outcome := 'NOT_FOUND';
+        RETURN NEXT;
+        RETURN;
+    END IF;
+    now_ts := clock_timestamp();
+
+    IF product.status <> 'ACTIVE' OR product.end_time < now_ts THEN
+        outcome := 'ENDED';
+    ELSIF EXISTS (SELECT 1 FROM bids b WHERE b.product_id = p_product_id AND b.bidder_id = p_bidder_id
+                  AND b.timestamp > now_ts - interval '1 minute') THEN
+        outcome := 'TOO_FREQUENT';
+    ELSIF EXISTS (SELECT 1 FROM product_restricted_bidders r WHERE r.product_id = p_product_id AND r.user_id = p_bidder_id) THEN
+        outcome := 'RESTRICTED';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    highest := coalesce(product.current_price, product.starting_price);
+
+    IF p_amount > highest * 2 THEN
+        outcome := 'TOO_HIGH';
+    ELSIF p_amount - highest < 1 THEN
+        outcome := 'TOO_LOW';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND b.timestamp >= now_ts - interval '1 day') >= 50 THEN
+        outcome := 'DAILY_LIMIT';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND b.product_id = p_product_id
+           AND b.timestamp >= now_ts - interval '1 day') >= 20 THEN
+        outcome := 'PRODUCT_DAILY_LIMIT';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    -- Compare-and-set on the price that was checked above. The anti-sniping extension (a bid in the
+    -- final minute adds 2 minutes) is part of the same update, so it happens once per accepted bid.
+    UPDATE products p
+    SET current_price = p_amount,
+        end_time = CASE WHEN p.end_time < now_ts + interval '1 minute' THEN p.end_time + interval '2 minutes' ELSE p.end_time END
+    WHERE p.id = p_product_id
+      AND p.current_price IS NOT DISTINCT FROM product.current_price
+      AND p.status = 'ACTIVE' AND p.end_time >= now_ts
+    RETURNING p.end_time INTO ends_at;
+    IF NOT FOUND THEN
+        outcome := 'CONFLICT';
+        RETURN NEXT;
+        RETURN;
+    END IF;
+    extended := ends_at <> product.end_time;
+
+    -- The row is now locked by this transaction, so the current leader cannot change under us
+    SELECT b.bidder_id INTO highest_bidder_id
+    FROM bids b WHERE b.product_id = p_product_id ORDER BY b.amount DESC LIMIT 1;
+
+    -- Bids are append-only, so a re-bid is just another insert
+    INSERT INTO bids (amount, timestamp, product_id, bidder_id)
+    VALUES (p_amount, now_ts, p_product_id, p_bidder_id)
+    RETURNING id INTO bid_id;
+
+    outcome := 'ACCEPTED';
+    placed_at := now_ts;
+    product_title := product.title;
+    SELECT u.username INTO seller_username FROM users u WHERE u.id = product.seller_id;
+    IF highest_bidder_id IS NOT NULL THEN
+        SELECT u.username INTO outbid_username FROM users u WHERE u.id = highest_bidder_id;
+    END IF;
+    RETURN NEXT;
+END;
+$$;
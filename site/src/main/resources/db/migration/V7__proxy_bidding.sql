@@ -0,0 +1,111 @@
+-- Proxy bidding: a bidder registers a hidden maximum and the engine (ProxyBidService) bids on their
+-- behalf, one increment above the competition, whenever they are outbid.
+CREATE TABLE proxy_bids (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id bigint NOT NULL CONSTRAINT fk_proxy_bids_product REFERENCES products,
+    bidder_id bigint NOT NULL CONSTRAINT fk_proxy_bids_bidder REFERENCES users,
+    max_amount numeric(38,2) NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT uk_proxy_bids_product_bidder UNIQUE (product_id, bidder_id)
+);
+
+-- Bids placed by the engine. They skip the rules meant to slow down manual bidding (the 1-minute
+-- frequency, the 2x ceiling and the daily limits) and are not counted against them.
+ALTER TABLE bids ADD COLUMN auto boolean NOT NULL DEFAULT false;
+
+-- place_bid as in V6, plus p_auto for bids placed by the engine
+DROP FUNCTION place_bid(bigint, bigint, numeric);
+
+CREATE FUNCTION place_bid(p_product_id bigint, p_bidder_id bigint, p_amount numeric, p_auto boolean DEFAULT false)
+RETURNS TABLE (
+    outcome text,
+    bid_id bigint,
+    placed_at timestamptz,
+    ends_at timestamptz,
+    extended boolean,
+    outbid_username varchar,
+    product_title varchar,
+    seller_username varchar
+) LANGUAGE plpgsql AS $$
+DECLARE
+    product products%ROWTYPE;
+    now_ts timestamptz;
+    highest numeric;
+    highest_bidder_id bigint;
+BEGIN
+    SELECT * INTO product FROM products p WHERE p.id = p_product_id;
+    IF NOT FOUND THEN
+        outcome := 'NOT_FOUND';
+        RETURN NEXT;
+        RETURN;
+    END IF;
+    now_ts := clock_timestamp();
+
+    IF product.status <> 'ACTIVE' OR product.end_time < now_ts THEN
+        outcome := 'ENDED';
+    ELSIF NOT p_auto AND EXISTS (SELECT 1 FROM bids b WHERE b.product_id = p_product_id AND b.bidder_id = p_bidder_id
+                  AND NOT b.auto AND b.timestamp > now_ts - interval '1 minute') THEN
+        outcome := 'TOO_FREQUENT';
+    ELSIF EXISTS (SELECT 1 FROM product_restricted_bidders r WHERE r.product_id = p_product_id AND r.user_id = p_bidder_id) THEN
+        outcome := 'RESTRICTED';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    highest := coalesce(product.current_price, product.starting_price);
+
+    IF p_amount - highest < 1 THEN
+        outcome := 'TOO_LOW';
+    ELSIF p_auto THEN
+        NULL;
+    ELSIF p_amount > highest * 2 THEN
+        outcome := 'TOO_HIGH';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND NOT b.auto
+           AND b.timestamp >= now_ts - interval '1 day') >= 50 THEN
+        outcome := 'DAILY_LIMIT';
+    ELSIF (SELECT count(*) FROM bids b WHERE b.bidder_id = p_bidder_id AND b.product_id = p_product_id AND NOT b.auto
+           AND b.timestamp >= now_ts - interval '1 day') >= 20 THEN
+        outcome := 'PRODUCT_DAILY_LIMIT';
+    END IF;
+    IF outcome IS NOT NULL THEN
+        RETURN NEXT;
+        RETURN;
+    END IF;
+
+    -- Compare-and-set on the price that was checked above. The anti-sniping extension (a bid in the
+    -- final minute adds 2 minutes) is part of the same update, so it happens once per accepted bid.
+    UPDATE products p
+    SET current_price = p_amount,
+        end_time = CASE WHEN p.end_time < now_ts + interval '1 minute' THEN p.end_time + interval '2 minutes' ELSE p.end_time END
+    WHERE p.id = p_product_id
+      AND p.current_price IS NOT DISTINCT FROM product.current_price
+      AND p.status = 'ACTIVE' AND p.end_time >= now_ts
+    RETURNING p.end_time INTO ends_at;
+    IF NOT FOUND THEN
+        outcome := 'CONFLICT';
+        RETURN NEXT;
+        RETURN;
+    END IF;
+    extended := ends_at <> product.end_time;
+
+    -- The row is now locked by this transaction, so the current leader cannot change under us
+    SELECT b.bidder_id INTO highest_bidder_id
+    FROM bids b WHERE b.product_id = p_product_id ORDER BY b.amount DESC LIMIT 1;
+
+    -- Bids are append-only, so a re-bid is just another insert
+    INSERT INTO bids (amount, timestamp, product_id, bidder_id, auto)
+    VALUES (p_amount, now_ts, p_product_id, p_bidder_id, p_auto)
+    RETURNING id INTO bid_id;
+
+    outcome := 'ACCEPTED';
+    placed_at := now_ts;
+    product_title := product.title;
+    SELECT u.username INTO seller_username FROM users u WHERE u.id = product.seller_id;
+    IF highest_bidder_id IS NOT NULL THEN
+        SELECT u.username INTO outbid_username FROM users u WHERE u.id = highest_bidder_id;
+    END IF;
+    RETURN NEXT;
+END;
+$$;
@@ -0,0 +1,12 @@
+-- The read marker becomes a (created_at, id) position, the order chat is shown in. Ids alone do not
+-- follow send order: write-behind reserves them in blocks per node, and the synchronous path takes
+-- them from the identity sequence directly.
+ALTER TABLE conversation_states ADD COLUMN last_read_created_at timestamp(6) with time zone;
+
+UPDATE conversation_states cs
+SET last_read_created_at = m.created_at
+FROM messages m
+WHERE m.id = cs.last_read_message_id;
+
+-- A marker whose message is gone cannot be placed in (created_at, id) order; such chats count as unread from the start
+UPDATE conversation_states SET last_read_message_id = NULL WHERE last_read_created_at IS NULL;
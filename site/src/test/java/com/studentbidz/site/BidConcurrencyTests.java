@@ -0,0 +1,153 @@
+package com.studentbidz.site;
+
+import com.studentbidz.site.dto.BidRequest;
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.ProductRepository;
+import com.studentbidz.site.repository.UserRepository;
+import com.studentbidz.site.service.BidService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fires thousands of simultaneous bids at one auction in its final minute and checks that the
+// compare-and-set in place_bid kept the auction consistent: every accepted bid beat the one accepted
+// before it, products.current_price is the last of them, and the anti-sniping extension ran once. The
+// conflicts counter shows the bids really did race for the same price.
+@SpringBootTest
+class BidConcurrencyTests {
+	private static final int BIDDERS = 2000;
+	private static final int THREADS = 64;
+	private static final BigDecimal STARTING_PRICE = BigDecimal.valueOf(100);
+
+	@Autowired
+	private BidService bidService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final String prefix = "stress" + System.nanoTime() + "_";
+	private Long productId;
+
+	@Test
+	void concurrentBidsAreAcceptedInOrder() throws Exception {
+		User seller = userRepository.save(newUser(prefix + "seller"));
+		List<User> bidders = new ArrayList<>();
+		for (int i = 0; i < BIDDERS; i++) {
+			bidders.add(newUser(prefix + i));
+		}
+		bidders = userRepository.saveAll(bidders);
+
+		Product product = new Product();
+		product.setTitle("Stress test");
+		product.setStartingPrice(STARTING_PRICE);
+		product.setEndTime(OffsetDateTime.now().plusHours(1));
+		product.setSeller(seller);
+		productId = productRepository.save(product).getId();
+
+		// Each bidder bids once, amounts 101..2100 in random order: plenty are valid when they arrive,
+		// and many race against each other for the same current price
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < BIDDERS; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for (int i : order) {
+			String username = bidders.get(i).getUsername();
+			BidRequest request = new BidRequest();
+			request.setAmount(STARTING_PRICE.add(BigDecimal.valueOf(i + 1)));
+			results.add(pool.submit(() -> {
+				start.await();
+				try {
+					bidService.placeBid(productId, request, username);
+					return true;
+				} catch (ResponseStatusException e) {
+					return false;
+				}
+			}));
+		}
+		// Into its final minute only now that the bidders are lined up, however long creating them took
+		jdbcTemplate.update("UPDATE products SET end_time = now() + interval '30 seconds' WHERE id = ?", productId);
+		OffsetDateTime originalEnd = jdbcTemplate.queryForObject("SELECT end_time FROM products WHERE id = ?", OffsetDateTime.class, productId);
+		double conflictsBefore = meterRegistry.counter("bids.placement.conflicts").count();
+		start.countDown();
+		int accepted = 0;
+		for (Future<Boolean> result : results) {
+			if (result.get(5, TimeUnit.MINUTES)) {
+				accepted++;
+			}
+		}
+		pool.shutdown();
+
+		List<BigDecimal> amounts = jdbcTemplate.queryForList(
+			"SELECT amount FROM bids WHERE product_id = ? ORDER BY id", BigDecimal.class, productId);
+		assertTrue(accepted > 0, "No bid was accepted");
+		assertEquals(accepted, amounts.size(), "Accepted bids and stored bids differ");
+		BigDecimal previous = STARTING_PRICE;
+		for (BigDecimal amount : amounts) {
+			assertTrue(amount.subtract(previous).compareTo(BigDecimal.ONE) >= 0, amount + " accepted after " + previous);
+			assertTrue(amount.compareTo(previous.multiply(BigDecimal.valueOf(2))) <= 0, amount + " accepted after " + previous);
+			previous = amount;
+		}
+		BigDecimal currentPrice = jdbcTemplate.queryForObject("SELECT current_price FROM products WHERE id = ?", BigDecimal.class, productId);
+		assertEquals(0, previous.compareTo(currentPrice), "current_price is not the last accepted bid");
+		assertTrue(meterRegistry.counter("bids.placement.conflicts").count() > conflictsBefore, "No bid lost the compare-and-set");
+		// A bid in the final minute of the extended end would rightly extend it again
+		OffsetDateTime lastBidAt = jdbcTemplate.queryForObject("SELECT max(timestamp) FROM bids WHERE product_id = ?", OffsetDateTime.class, productId);
+		assertTrue(lastBidAt.isBefore(originalEnd.plusMinutes(1)), "Bidding ran into the extended final minute, so a second extension was allowed");
+		OffsetDateTime endTime = jdbcTemplate.queryForObject("SELECT end_time FROM products WHERE id = ?", OffsetDateTime.class, productId);
+		assertEquals(originalEnd.plusMinutes(2).toInstant(), endTime.toInstant(), "Anti-sniping extension was not applied exactly once");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		if (productId != null) {
+			jdbcTemplate.update("DELETE FROM notifications WHERE product_id = ?", productId);
+			jdbcTemplate.update("DELETE FROM bids WHERE product_id = ?", productId);
+			jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+		}
+		jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username LIKE ?)", prefix + "%");
+		jdbcTemplate.update("DELETE FROM users WHERE username LIKE ?", prefix + "%");
+	}
+
+	private User newUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("unused");
+		user.setRoles(Set.of("USER"));
+		return user;
+	}
+
+}
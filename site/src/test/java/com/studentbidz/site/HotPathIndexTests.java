@@ -0,0 +1,88 @@
+package com.studentbidz.site;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Guards the indexes from db/migration: with sequential scans disabled the planner only falls back to
+// one when no usable index exists, so a "Seq Scan" in any of these plans means a hot query lost its index.
+// Each plan must also use the index the migration made for that query; on partitioned tables the plan
+// names each partition's copy, which is traced back to the index created on the parent.
+@SpringBootTest
+class HotPathIndexTests {
+	private static final Map<String, String> HOT_QUERIES = Map.of(
+		"SELECT * FROM bids WHERE product_id = 1 ORDER BY amount DESC LIMIT 1", "idx_bids_product_amount",
+		"SELECT COUNT(*) FROM bids WHERE bidder_id = 1 AND timestamp >= now() - interval '1 day'", "idx_bids_bidder_timestamp",
+		"SELECT * FROM products WHERE status = 'ACTIVE' AND end_time < now()", "idx_products_status_end_time",
+		"SELECT * FROM notifications WHERE user_id = 1 AND status = 'UNREAD' ORDER BY created_at DESC", "idx_notifications_user_status_created",
+		"SELECT * FROM messages WHERE product_id = 1 ORDER BY created_at", "idx_messages_product_created_id"
+	);
+
+	private static final Pattern INDEX_USED = Pattern.compile("Index (?:Only )?Scan(?: Backward)? using (\\S+)");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void hotQueriesUseIndexes() {
+		jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SET enable_seqscan = off");
+				try {
+					for (Map.Entry<String, String> hot : HOT_QUERIES.entrySet()) {
+						String query = hot.getKey();
+						StringBuilder plan = new StringBuilder();
+						try (ResultSet rs = statement.executeQuery("EXPLAIN " + query)) {
+							while (rs.next()) {
+								plan.append(rs.getString(1)).append('\n');
+							}
+						}
+						assertFalse(plan.toString().contains("Seq Scan"), "Sequential scan for: " + query + "\n" + plan);
+						assertEquals(Set.of(hot.getValue()), indexesUsed(connection, plan.toString()), "Wrong index for: " + query + "\n" + plan);
+					}
+				} finally {
+					// The connection goes back to the pool, so the setting must not outlive this test
+					statement.execute("RESET enable_seqscan");
+				}
+			}
+			return null;
+		});
+	}
+
+	private Set<String> indexesUsed(Connection connection, String plan) throws SQLException {
+		Set<String> indexes = new LinkedHashSet<>();
+		Matcher used = INDEX_USED.matcher(plan);
+		while (used.find()) {
+			indexes.add(rootIndex(connection, used.group(1)));
+		}
+		return indexes;
+	}
+
+	// A partition's index is attached to the parent table's index; follow that up to the one we created
+	private String rootIndex(Connection connection, String index) throws SQLException {
+		try (PreparedStatement parent = connection.prepareStatement(
+				"SELECT p.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent WHERE c.relname = ?")) {
+			parent.setString(1, index);
+			try (ResultSet rs = parent.executeQuery()) {
+				return rs.next() ? rootIndex(connection, rs.getString(1)) : index;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.studentbidz.site;
+
+import com.studentbidz.site.dto.ProxyBidRequest;
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.entity.ProxyBid;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.ProductRepository;
+import com.studentbidz.site.repository.ProxyBidRepository;
+import com.studentbidz.site.repository.UserRepository;
+import com.studentbidz.site.service.BidService;
+import com.studentbidz.site.service.ProxyBidService;
+import com.studentbidz.site.service.RestrictedBidderIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Where resolve() ends a bidding war between registered maximums, and that the bid a bidder triggers by
+// registering one is held to the manual bid limits.
+@SpringBootTest
+class ProxyBidServiceTests {
+	private static final BigDecimal STARTING_PRICE = BigDecimal.TEN;
+
+	@Autowired
+	private ProxyBidService proxyBidService;
+
+	@Autowired
+	private BidService bidService;
+
+	@Autowired
+	private RestrictedBidderIndex restrictedBidderIndex;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProxyBidRepository proxyBidRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final String prefix = "proxy" + System.nanoTime() + "_";
+	private Product product;
+
+	@BeforeEach
+	void createProduct() {
+		product = new Product();
+		product.setTitle("Proxy bidding");
+		product.setStartingPrice(STARTING_PRICE);
+		product.setEndTime(OffsetDateTime.now().plusHours(1));
+		product.setSeller(userRepository.save(newUser(prefix + "seller")));
+		product = productRepository.save(product);
+	}
+
+	@Test
+	void tieGoesToEarlierRegistration() {
+		OffsetDateTime now = OffsetDateTime.now();
+		registered("later", 50, now);
+		User earlier = registered("earlier", 50, now.minusMinutes(5));
+
+		ProxyBidService.AutoBid auto = proxyBidService.resolve(product.getId(), STARTING_PRICE, null);
+
+		assertNotNull(auto);
+		assertEquals(earlier.getId(), auto.getBidderId());
+		assertEquals(0, BigDecimal.valueOf(50).compareTo(auto.getAmount()), "A tie is bid up to the shared maximum");
+	}
+
+	@Test
+	void leaderWithProxyKeepsLeadOnTie() {
+		OffsetDateTime now = OffsetDateTime.now();
+		registered("challenger", 50, now.minusMinutes(5));
+		User leader = registered("leader", 50, now);
+
+		ProxyBidService.AutoBid auto = proxyBidService.resolve(product.getId(), BigDecimal.valueOf(20), leader.getId());
+
+		assertNotNull(auto);
+		assertEquals(leader.getId(), auto.getBidderId());
+		assertEquals(0, BigDecimal.valueOf(50).compareTo(auto.getAmount()));
+	}
+
+	@Test
+	void leaderWithProxyAloneIsNotChallenged() {
+		User leader = registered("leader", 50, OffsetDateTime.now());
+
+		assertNull(proxyBidService.resolve(product.getId(), BigDecimal.valueOf(20), leader.getId()));
+	}
+
+	@Test
+	void leaderWithoutProxyIsOutbidByOneIncrement() {
+		User leader = userRepository.save(newUser(prefix + "leader"));
+		User challenger = registered("challenger", 50, OffsetDateTime.now());
+
+		ProxyBidService.AutoBid auto = proxyBidService.resolve(product.getId(), BigDecimal.valueOf(20), leader.getId());
+
+		assertNotNull(auto);
+		assertEquals(challenger.getId(), auto.getBidderId());
+		assertEquals(0, BigDecimal.valueOf(21).compareTo(auto.getAmount()));
+	}
+
+	@Test
+	void restrictedProxyHolderIsLeftOut() {
+		OffsetDateTime now = OffsetDateTime.now();
+		User restricted = registered("restricted", 100, now.minusMinutes(5));
+		User allowed = registered("allowed", 30, now);
+		jdbcTemplate.update("INSERT INTO product_restricted_bidders (product_id, user_id) VALUES (?, ?)", product.getId(), restricted.getId());
+		restrictedBidderIndex.evict(product.getId());
+
+		ProxyBidService.AutoBid auto = proxyBidService.resolve(product.getId(), STARTING_PRICE, null);
+
+		assertNotNull(auto);
+		assertEquals(allowed.getId(), auto.getBidderId());
+		assertEquals(0, BigDecimal.valueOf(11).compareTo(auto.getAmount()), "The restricted maximum must not push the price up");
+	}
+
+	// Raising a maximum within a minute of the bid the last one placed would be a second manual bid
+	@Test
+	void bidTriggeredByRegistrationIsRateLimited() {
+		String first = userRepository.save(newUser(prefix + "first")).getUsername();
+		String second = userRepository.save(newUser(prefix + "second")).getUsername();
+		bidService.setProxyBid(product.getId(), maximum(17), first);
+		bidService.setProxyBid(product.getId(), maximum(30), second);
+
+		ResponseStatusException rejected = assertThrows(ResponseStatusException.class,
+			() -> bidService.setProxyBid(product.getId(), maximum(100), first));
+
+		assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+		Long firstId = userRepository.findByUsername(first).orElseThrow().getId();
+		assertEquals(0, BigDecimal.valueOf(17).compareTo(proxyBidService.find(product.getId(), firstId).orElseThrow().getMaxAmount()),
+			"The rejected maximum was kept");
+	}
+
+	private User registered(String name, long maxAmount, OffsetDateTime createdAt) {
+		User bidder = userRepository.save(newUser(prefix + name));
+		ProxyBid proxy = new ProxyBid();
+		proxy.setProduct(product);
+		proxy.setBidder(bidder);
+		proxy.setMaxAmount(BigDecimal.valueOf(maxAmount));
+		proxy.setCreatedAt(createdAt);
+		proxyBidRepository.save(proxy);
+		return bidder;
+	}
+
+	private ProxyBidRequest maximum(long amount) {
+		ProxyBidRequest request = new ProxyBidRequest();
+		request.setMaxAmount(BigDecimal.valueOf(amount));
+		return request;
+	}
+
+	private User newUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("unused");
+		user.setRoles(Set.of("USER"));
+		return user;
+	}
+
+	@AfterEach
+	void cleanUp() {
+		Long productId = product.getId();
+		jdbcTemplate.update("DELETE FROM notifications WHERE product_id = ?", productId);
+		jdbcTemplate.update("DELETE FROM bids WHERE product_id = ?", productId);
+		jdbcTemplate.update("DELETE FROM proxy_bids WHERE product_id = ?", productId);
+		jdbcTemplate.update("DELETE FROM product_restricted_bidders WHERE product_id = ?", productId);
+		jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+		restrictedBidderIndex.evict(productId);
+		jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username LIKE ?)", prefix + "%");
+		jdbcTemplate.update("DELETE FROM users WHERE username LIKE ?", prefix + "%");
+	}
+}
@@ -0,0 +1,171 @@
+package com.studentbidz.site;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studentbidz.site.entity.Product;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.ProductRepository;
+import com.studentbidz.site.repository.UserRepository;
+import com.studentbidz.site.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// With a replica configured, read-only work goes to it until the user writes, over HTTP or as a STOMP bid;
+// their next HTTP read goes to the primary. The replica here is the same database under another
+// application_name, which is how the probe tells the two pools apart.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReadYourWritesTests {
+	private static final String DATABASE_URL = "jdbc:postgresql://localhost:5432/studentbidz_db";
+
+	@DynamicPropertySource
+	static void replica(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> DATABASE_URL + "?ApplicationName=primary");
+		registry.add("app.datasource.replica.url", () -> DATABASE_URL + "?ApplicationName=replica");
+		registry.add("app.datasource.replica.read-your-writes-window", () -> "PT1M");
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private final String prefix = "ryw" + System.nanoTime() + "_";
+	private Long productId;
+
+	@Test
+	void readAfterHttpWriteGoesToPrimary() {
+		HttpEntity<Void> request = authenticated(userRepository.save(newUser(prefix + "writer")).getUsername());
+
+		assertEquals("replica", exchange(HttpMethod.GET, request).getBody());
+		assertEquals(HttpStatus.OK, exchange(HttpMethod.POST, request).getStatusCode());
+		assertEquals("primary", exchange(HttpMethod.GET, request).getBody());
+	}
+
+	// The STOMP session's principal is the plain username, the HTTP one wraps the User entity
+	@Test
+	void readAfterStompBidGoesToPrimary() throws Exception {
+		User seller = userRepository.save(newUser(prefix + "seller"));
+		String bidder = userRepository.save(newUser(prefix + "bidder")).getUsername();
+		Product product = new Product();
+		product.setTitle("Read your writes");
+		product.setStartingPrice(BigDecimal.TEN);
+		product.setEndTime(OffsetDateTime.now().plusHours(1));
+		product.setSeller(seller);
+		productId = productRepository.save(product).getId();
+		HttpEntity<Void> request = authenticated(bidder);
+		assertEquals("replica", exchange(HttpMethod.GET, request).getBody());
+
+		StompSession session = StompTestClient.connect(port, jwtUtil.generateToken(bidder));
+		BlockingQueue<StompTestClient.Frame> receipts = StompTestClient.subscribe(session, "/user/queue/bid-receipts");
+		StompHeaders headers = new StompHeaders();
+		headers.setDestination("/app/bids/" + productId);
+		session.send(headers, "{\"amount\":20}".getBytes(StandardCharsets.UTF_8));
+		StompTestClient.Frame receipt = receipts.poll(10, TimeUnit.SECONDS);
+		assertNotNull(receipt, "No bid receipt came back");
+		assertTrue(objectMapper.readTree(receipt.payload()).get("accepted").asBoolean(), "The bid was not accepted");
+		session.disconnect();
+
+		assertEquals("primary", exchange(HttpMethod.GET, request).getBody());
+	}
+
+	private HttpEntity<Void> authenticated(String username) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth(jwtUtil.generateToken(username));
+		return new HttpEntity<>(headers);
+	}
+
+	private ResponseEntity<String> exchange(HttpMethod method, HttpEntity<Void> request) {
+		return restTemplate.exchange("/test/routing", method, request, String.class);
+	}
+
+	private User newUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("unused");
+		user.setRoles(Set.of("USER"));
+		return user;
+	}
+
+	@AfterEach
+	void cleanUp() {
+		if (productId != null) {
+			jdbcTemplate.update("DELETE FROM notifications WHERE product_id = ?", productId);
+			jdbcTemplate.update("DELETE FROM bids WHERE product_id = ?", productId);
+			jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+		}
+		jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username LIKE ?)", prefix + "%");
+		jdbcTemplate.update("DELETE FROM users WHERE username LIKE ?", prefix + "%");
+	}
+
+	@TestConfiguration
+	static class RoutingProbe {
+		@RestController
+		static class RoutingProbeController {
+			@Autowired
+			private JdbcTemplate jdbcTemplate;
+
+			@Autowired
+			private PlatformTransactionManager transactionManager;
+
+			// Which pool a read-only transaction in this request is served from
+			@GetMapping("/test/routing")
+			public String read() {
+				TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+				readOnly.setReadOnly(true);
+				return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class));
+			}
+
+			// Any successful mutating request counts as a write
+			@PostMapping("/test/routing")
+			public void write() {
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.studentbidz.site;
+
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// STOMP over the raw /ws endpoint for tests. Payloads pass through as bytes in both directions, with no
+// content-type added, so tests see exactly what a plain browser client sends and receives.
+final class StompTestClient {
+	record Frame(StompHeaders headers, byte[] payload) {
+	}
+
+	private StompTestClient() {
+	}
+
+	static StompSession connect(int port, String token) throws Exception {
+		WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+		client.setMessageConverter(new RawBytes());
+		return client.connectAsync("ws://localhost:" + port + "/ws?token=" + token, new StompSessionHandlerAdapter() {
+		}).get(10, TimeUnit.SECONDS);
+	}
+
+	static BlockingQueue<Frame> subscribe(StompSession session, String destination) {
+		BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+		session.subscribe(destination, new StompFrameHandler() {
+			@Override
+			@NonNull
+			public Type getPayloadType(@NonNull StompHeaders headers) {
+				return byte[].class;
+			}
+
+			@Override
+			public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+				frames.add(new Frame(headers, (byte[]) payload));
+			}
+		});
+		return frames;
+	}
+
+	private static class RawBytes implements MessageConverter {
+		@Override
+		public Object fromMessage(@NonNull Message<?> message, @NonNull Class<?> targetClass) {
+			return message.getPayload();
+		}
+
+		@Override
+		public Message<?> toMessage(@NonNull Object payload, MessageHeaders headers) {
+			return MessageBuilder.createMessage(payload, headers);
+		}
+	}
+}
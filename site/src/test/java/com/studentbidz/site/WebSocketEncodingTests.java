@@ -0,0 +1,184 @@
+package com.studentbidz.site;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.studentbidz.site.config.CompactEncodingInterceptor;
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.UserRepository;
+import com.studentbidz.site.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A client that never opts in to CBOR sends and receives plain JSON without naming a content-type, and one
+// that does can send and receive CBOR in binary frames
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WebSocketEncodingTests {
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final ObjectMapper cborMapper = new CBORMapper();
+
+	private final String username = "encoding" + System.nanoTime();
+
+	@Test
+	void jsonFrameWithoutContentTypeGetsJsonReply() throws Exception {
+		StompSession session = StompTestClient.connect(port, jwtUtil.generateToken(createUser()));
+		BlockingQueue<StompTestClient.Frame> receipts = StompTestClient.subscribe(session, "/user/queue/bid-receipts");
+		// The subscription is processed before the SEND that follows it on the same session
+		session.send(bidFrame(), "{\"amount\":12.5}".getBytes(StandardCharsets.UTF_8));
+
+		JsonNode receipt = jsonReceipt(receipts);
+		// The amount made it through decoding
+		assertFalse(receipt.get("accepted").asBoolean());
+		assertEquals(12.5, receipt.get("amount").asDouble());
+		assertEquals("Product not found", receipt.get("message").asText());
+		session.disconnect();
+	}
+
+	// The Spring STOMP client only sends octet-stream bodies as binary frames, so this one writes the frames itself
+	@Test
+	void cborSessionSendsAndReceivesCbor() throws Exception {
+		BlockingQueue<Message<byte[]>> frames = new LinkedBlockingQueue<>();
+		StompDecoder decoder = new StompDecoder();
+		WebSocketSession session = new StandardWebSocketClient().execute(new AbstractWebSocketHandler() {
+			@Override
+			protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
+				frames.addAll(decoder.decode(ByteBuffer.wrap(message.asBytes())));
+			}
+
+			@Override
+			protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) {
+				frames.addAll(decoder.decode(message.getPayload()));
+			}
+		}, "ws://localhost:" + port + "/ws?token=" + jwtUtil.generateToken(createUser())).get(10, TimeUnit.SECONDS);
+
+		StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+		connect.setAcceptVersion("1.2");
+		connect.setHost("localhost");
+		connect.setNativeHeader(CompactEncodingInterceptor.ACCEPT_HEADER, CompactEncodingInterceptor.CBOR.toString());
+		session.sendMessage(new TextMessage(encode(connect, new byte[0])));
+		assertEquals(StompCommand.CONNECTED, nextFrame(frames).getCommand());
+
+		StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		subscribe.setSubscriptionId("0");
+		subscribe.setDestination("/user/queue/bid-receipts");
+		session.sendMessage(new TextMessage(encode(subscribe, new byte[0])));
+
+		byte[] bid = cborMapper.writeValueAsBytes(Map.of("amount", 12.5));
+		StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+		send.setDestination(bidFrame().getDestination());
+		send.setContentType(CompactEncodingInterceptor.CBOR);
+		send.setContentLength(bid.length);
+		session.sendMessage(new BinaryMessage(encode(send, bid)));
+
+		Message<byte[]> receipt = frames.poll(10, TimeUnit.SECONDS);
+		assertNotNull(receipt, "No bid receipt came back");
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(receipt);
+		assertEquals(StompCommand.MESSAGE, headers.getCommand());
+		assertEquals(CompactEncodingInterceptor.CBOR.toString(), headers.getFirstNativeHeader(CompactEncodingInterceptor.FORMAT_HEADER));
+		JsonNode decoded = cborMapper.readTree(receipt.getPayload());
+		assertFalse(decoded.get("accepted").asBoolean());
+		assertEquals(12.5, decoded.get("amount").asDouble());
+		assertEquals("Product not found", decoded.get("message").asText());
+		session.close();
+	}
+
+	// A payload that cannot be converted to a bid still gets a receipt rather than no reply at all
+	@Test
+	void unreadableFrameGetsRejectedReceipt() throws Exception {
+		StompSession session = StompTestClient.connect(port, jwtUtil.generateToken(createUser()));
+		BlockingQueue<StompTestClient.Frame> receipts = StompTestClient.subscribe(session, "/user/queue/bid-receipts");
+		session.send(bidFrame(), "{\"amount\":\"twelve\"}".getBytes(StandardCharsets.UTF_8));
+
+		JsonNode receipt = jsonReceipt(receipts);
+		assertFalse(receipt.get("accepted").asBoolean());
+		assertEquals("Bid could not be placed", receipt.get("message").asText());
+		session.disconnect();
+	}
+
+	private static byte[] encode(StompHeaderAccessor headers, byte[] payload) {
+		return new StompEncoder().encode(MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+	}
+
+	private static StompHeaderAccessor nextFrame(BlockingQueue<Message<byte[]>> frames) throws InterruptedException {
+		Message<byte[]> frame = frames.poll(10, TimeUnit.SECONDS);
+		assertNotNull(frame, "No frame came back");
+		return StompHeaderAccessor.wrap(frame);
+	}
+
+	private String createUser() {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("unused");
+		user.setRoles(Set.of("USER"));
+		userRepository.save(user);
+		return username;
+	}
+
+	// A bid on an auction that does not exist, which comes back as a rejected receipt
+	private StompHeaders bidFrame() {
+		StompHeaders headers = new StompHeaders();
+		headers.setDestination("/app/bids/" + Long.MAX_VALUE);
+		return headers;
+	}
+
+	private JsonNode jsonReceipt(BlockingQueue<StompTestClient.Frame> receipts) throws Exception {
+		StompTestClient.Frame receipt = receipts.poll(10, TimeUnit.SECONDS);
+		assertNotNull(receipt, "No bid receipt came back");
+		assertNotNull(receipt.headers().getContentType());
+		assertTrue(MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(receipt.headers().getContentType()));
+		return objectMapper.readTree(receipt.payload());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username = ?)", username);
+		jdbcTemplate.update("DELETE FROM users WHERE username = ?", username);
+	}
+}
@@ -0,0 +1,124 @@
+package com.studentbidz.site;
+
+import com.studentbidz.site.entity.User;
+import com.studentbidz.site.repository.UserRepository;
+import com.studentbidz.site.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two nodes in relay mode sharing the embedded Artemis broker: a broadcast made on one node must reach
+// subscribers connected to either node, which is what lets broadcast fan-out scale with the node count.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WebSocketRelayTests {
+	private static final int RELAY_PORT = freePort();
+	private static final String DESTINATION = "/topic/relay-test";
+
+	@DynamicPropertySource
+	static void relay(DynamicPropertyRegistry registry) {
+		registry.add("app.websocket.broker", () -> "relay");
+		registry.add("app.websocket.relay.port", () -> RELAY_PORT);
+		registry.add("app.websocket.embedded-broker.enabled", () -> "true");
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private SimpMessagingTemplate messagingTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private final String username = "relay" + System.nanoTime();
+	private ConfigurableApplicationContext otherNode;
+
+	@Test
+	void broadcastReachesSubscribersOnEveryNode() throws Exception {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("unused");
+		user.setRoles(Set.of("USER"));
+		userRepository.save(user);
+		String token = jwtUtil.generateToken(username);
+
+		// Command-line arguments, because application.properties would override default properties
+		otherNode = new SpringApplicationBuilder(SiteApplication.class).run(
+			"--server.port=0",
+			"--app.websocket.broker=relay",
+			"--app.websocket.relay.port=" + RELAY_PORT,
+			"--app.websocket.embedded-broker.enabled=false",
+			// Keeps this node off the JCache manager the test context shares in this JVM
+			"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+			"--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+			"--spring.jpa.properties.hibernate.cache.region.factory_class=none");
+		int otherPort = otherNode.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+		StompSession local = StompTestClient.connect(port, token);
+		StompSession remote = StompTestClient.connect(otherPort, token);
+		BlockingQueue<StompTestClient.Frame> localFrames = StompTestClient.subscribe(local, DESTINATION);
+		BlockingQueue<StompTestClient.Frame> remoteFrames = StompTestClient.subscribe(remote, DESTINATION);
+
+		// Subscriptions reach the broker asynchronously, so keep broadcasting until both have one
+		StompTestClient.Frame localFrame = null;
+		StompTestClient.Frame remoteFrame = null;
+		for (int i = 0; i < 50 && (localFrame == null || remoteFrame == null); i++) {
+			messagingTemplate.convertAndSend(DESTINATION, Map.of("from", "node-a"));
+			if (localFrame == null) {
+				localFrame = localFrames.poll(200, TimeUnit.MILLISECONDS);
+			}
+			if (remoteFrame == null) {
+				remoteFrame = remoteFrames.poll(200, TimeUnit.MILLISECONDS);
+			}
+		}
+		assertNotNull(localFrame, "Broadcast did not reach the subscriber on the broadcasting node");
+		assertNotNull(remoteFrame, "Broadcast did not reach the subscriber on the other node");
+		assertTrue(new String(remoteFrame.payload(), StandardCharsets.UTF_8).contains("node-a"));
+		local.disconnect();
+		remote.disconnect();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		if (otherNode != null) {
+			otherNode.close();
+		}
+		jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username = ?)", username);
+		jdbcTemplate.update("DELETE FROM users WHERE username = ?", username);
+	}
+
+	private static int freePort() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}